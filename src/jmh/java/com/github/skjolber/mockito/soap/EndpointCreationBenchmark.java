@@ -0,0 +1,100 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+
+/**
+ * Cost of creating (and starting) a mock endpoint through the proxy method of the rules. Endpoints are removed
+ * after each invocation, outside of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EndpointCreationBenchmark {
+
+	private static final int PORT = 12360;
+
+	/**
+	 * <ul>
+	 * <li>server: {@linkplain SoapServerRule}, a new bus per endpoint</li>
+	 * <li>serverSharedBus: {@linkplain SoapServerRule} with a shared bus</li>
+	 * <li>serverLocal: {@linkplain SoapServerRule} on the local transport</li>
+	 * <li>endpoint: {@linkplain SoapEndpointRule} on a reserved port</li>
+	 * </ul>
+	 */
+	@Param({"server", "serverSharedBus", "serverLocal", "endpoint"})
+	private String rule;
+
+	private SoapServiceRule soap;
+	private String address;
+
+	private BankCustomerServicePortType target;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		switch(rule) {
+			case "server":
+				soap = SoapServerRule.newInstance();
+				address = "http://localhost:" + PORT + "/service";
+				break;
+			case "serverSharedBus":
+				soap = SoapServerRule.newInstance(true);
+				address = "http://localhost:" + PORT + "/service";
+				break;
+			case "serverLocal":
+				soap = SoapServerRule.newInstance();
+				address = "local://benchmark/service";
+				break;
+			case "endpoint":
+				SoapEndpointRule endpointRule = SoapEndpointRule.newInstance("benchmarkPort");
+				endpointRule.before();
+				soap = endpointRule;
+				address = "http://localhost:" + endpointRule.getPort("benchmarkPort") + "/service";
+				break;
+			default:
+				throw new IllegalArgumentException(rule);
+		}
+		target = (request, header) -> null;
+	}
+
+	@Benchmark
+	public void proxy() {
+		soap.proxy(target, BankCustomerServicePortType.class, address, null, null);
+	}
+
+	@TearDown(Level.Invocation)
+	public void clear() {
+		if(soap instanceof SoapServerRule) {
+			((SoapServerRule)soap).reset();
+		} else {
+			((SoapEndpointRule)soap).clear();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void destroy() {
+		if(soap instanceof SoapServerRule) {
+			((SoapServerRule)soap).destroy();
+		} else {
+			((SoapEndpointRule)soap).destroy();
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of reserving and releasing ports with {@linkplain PortManager}, without binding sockets, with and without
+ * cross-process leases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PortManagerBenchmark {
+
+	@Param({"1", "4"})
+	private int ports;
+
+	@Param({"true", "false"})
+	private boolean leases;
+
+	private PortManager<String> portManager;
+
+	@Setup
+	public void setup() {
+		portManager = new PortManager<String>(40000, 50000, leases ? PortLeases.getInstance() : PortLeases.NONE) {
+			@Override
+			public String reserve(int port) {
+				return "data" + port;
+			}
+
+			@Override
+			public void release(String data) {
+			}
+		};
+		String[] names = new String[ports];
+		for(int i = 0; i < names.length; i++) {
+			names[i] = "benchmarkPort" + i;
+		}
+		portManager.add(names);
+	}
+
+	@Benchmark
+	public int reserveAndRelease() {
+		portManager.start();
+		try {
+			return portManager.getPort("benchmarkPort0");
+		} finally {
+			portManager.stop();
+		}
+	}
+}
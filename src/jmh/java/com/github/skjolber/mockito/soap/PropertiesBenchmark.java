@@ -0,0 +1,56 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of building endpoint properties via {@linkplain SoapServiceRule#properties(Object...)} and
+ * {@linkplain SoapServiceRule#processProperties(Map, String, List)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertiesBenchmark {
+
+	private static final List<String> SCHEMA_LOCATIONS = Arrays.asList("classpath:wsdl/BankCustomerService.xsd");
+
+	private SoapServiceRule rule;
+	private Map<String, Object> properties;
+
+	@Setup
+	public void setup() {
+		rule = SoapServerRule.newInstance();
+		properties = SoapServiceRule.properties("mtom-enabled", Boolean.TRUE, SoapResponseCache.PROPERTY, Boolean.TRUE);
+	}
+
+	@Benchmark
+	public Map<String, Object> properties() {
+		return SoapServiceRule.properties("mtom-enabled", Boolean.TRUE, SoapResponseCache.PROPERTY, Boolean.TRUE);
+	}
+
+	@Benchmark
+	public Map<String, Object> processProperties() {
+		return rule.processProperties(properties, null, null);
+	}
+
+	@Benchmark
+	public Map<String, Object> processPropertiesWithSchemaValidation() {
+		return rule.processProperties(properties, null, SCHEMA_LOCATIONS);
+	}
+}
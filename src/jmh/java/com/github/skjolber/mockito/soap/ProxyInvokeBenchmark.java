@@ -0,0 +1,117 @@
+package com.github.skjolber.mockito.soap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+/**
+ * Per-call cost of {@linkplain SoapServiceProxy} dispatch, outside of an endpoint, compared to calling the target directly
+ * and to dispatch via a table of bound {@linkplain MethodHandle}s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyInvokeBenchmark {
+
+	/**
+	 * Dispatch table of bound method handles, created up front.
+	 */
+	private static class MethodHandleProxy implements InvocationHandler {
+
+		private final Map<Method, MethodHandle> handles = new HashMap<>();
+
+		MethodHandleProxy(Object obj, Class<?> port) throws Exception {
+			for(Method m : port.getMethods()) {
+				MethodHandle handle = MethodHandles.publicLookup().unreflect(m).bindTo(obj);
+				handles.put(m, handle.asType(MethodType.genericMethodType(m.getParameterCount())));
+			}
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+			try {
+				return handles.get(m).invokeExact(args[0], args[1]);
+			} catch (org.apache.cxf.binding.soap.SoapFault e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e.getMessage(), e);
+			}
+		}
+	}
+
+	private BankCustomerServicePortType target;
+	private BankCustomerServicePortType proxy;
+	private BankCustomerServicePortType handleProxy;
+	private BankCustomerServicePortType mockProxy;
+
+	private GetAccountsRequest request;
+	private BankRequestHeader header;
+
+	@Setup
+	public void setup() throws Exception {
+		GetAccountsResponse response = new GetAccountsResponse();
+		response.getAccount().add("1234");
+
+		target = (request, header) -> response;
+		proxy = SoapServiceProxy.newInstance(target);
+		handleProxy = (BankCustomerServicePortType)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {BankCustomerServicePortType.class}, new MethodHandleProxy(target, BankCustomerServicePortType.class));
+
+		// stub only, so that invocations are not kept
+		BankCustomerServicePortType mock = mock(BankCustomerServicePortType.class, withSettings().stubOnly());
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(response);
+		mockProxy = SoapServiceProxy.newInstance(mock);
+
+		request = new GetAccountsRequest();
+		header = new BankRequestHeader();
+	}
+
+	@Benchmark
+	public GetAccountsResponse direct() throws Exception {
+		return target.getAccounts(request, header);
+	}
+
+	@Benchmark
+	public GetAccountsResponse proxy() throws Exception {
+		return proxy.getAccounts(request, header);
+	}
+
+	@Benchmark
+	public GetAccountsResponse methodHandles() throws Exception {
+		return handleProxy.getAccounts(request, header);
+	}
+
+	@Benchmark
+	public GetAccountsResponse proxyToMock() throws Exception {
+		return mockProxy.getAccounts(request, header);
+	}
+}
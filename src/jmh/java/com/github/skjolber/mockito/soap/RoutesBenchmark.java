@@ -0,0 +1,81 @@
+package com.github.skjolber.mockito.soap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+/**
+ * Per-call cost of selecting one of many canned responses, using Mockito stubbings with argument matchers compared to
+ * a {@linkplain SoapRoutes} routing table. The request matches the first stubbing, which Mockito checks last.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutesBenchmark {
+
+	@Param({"10", "100", "1000"})
+	private int responses;
+
+	private BankCustomerServicePortType stubbed;
+	private BankCustomerServicePortType routed;
+
+	private GetAccountsRequest request;
+	private BankRequestHeader header;
+
+	@Setup
+	public void setup() throws Exception {
+		stubbed = mock(BankCustomerServicePortType.class, withSettings().stubOnly());
+
+		SoapRoutes<BankCustomerServicePortType> routes = SoapRoutes.newInstance(BankCustomerServicePortType.class);
+		SoapRoutes.Route<GetAccountsRequest> route = routes.route("getAccounts", GetAccountsRequest.class, GetAccountsRequest::getCustomerNumber);
+
+		for(int i = 0; i < responses; i++) {
+			String customerNumber = Integer.toString(i);
+
+			GetAccountsResponse response = new GetAccountsResponse();
+			response.getAccount().add(customerNumber);
+
+			when(stubbed.getAccounts(argThat(r -> r != null && customerNumber.equals(r.getCustomerNumber())), any(BankRequestHeader.class))).thenReturn(response);
+			route.respond(customerNumber, response);
+		}
+		routed = routes.wrap(mock(BankCustomerServicePortType.class, withSettings().stubOnly()));
+
+		request = new GetAccountsRequest();
+		request.setCustomerNumber("0");
+		header = new BankRequestHeader();
+	}
+
+	@Benchmark
+	public GetAccountsResponse stubbed() throws Exception {
+		return stubbed.getAccounts(request, header);
+	}
+
+	@Benchmark
+	public GetAccountsResponse routed() throws Exception {
+		return routed.getAccounts(request, header);
+	}
+}
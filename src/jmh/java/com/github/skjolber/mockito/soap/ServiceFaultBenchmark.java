@@ -0,0 +1,73 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.binding.soap.SoapFault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.skjolber.bank.example.v1.BankException;
+
+/**
+ * Cost of the {@linkplain SoapServiceFault#createFault} variants and of {@linkplain FaultTemplate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceFaultBenchmark {
+
+	private static final String DETAIL = "<bankException xmlns=\"http://example.bank.skjolber.github.com/v1\"><code>a</code><message>b</message></bankException>";
+
+	private BankException bankException;
+	private QName qname;
+	private FaultTemplate template;
+
+	@Setup
+	public void setup() {
+		bankException = new BankException();
+		bankException.setCode("a");
+		bankException.setMessage("b");
+
+		qname = new QName("http://example.bank.skjolber.github.com/v1", "bankException");
+
+		template = FaultTemplate.newInstance(bankException);
+	}
+
+	@Benchmark
+	public SoapFault createFault() {
+		return SoapServiceFault.createFault();
+	}
+
+	@Benchmark
+	public SoapFault createFaultFromString() {
+		return SoapServiceFault.createFault(DETAIL);
+	}
+
+	@Benchmark
+	public SoapFault createFaultFromJaxb() {
+		return SoapServiceFault.createFault(bankException);
+	}
+
+	@Benchmark
+	public SoapFault createFaultFromJaxbWithQName() {
+		return SoapServiceFault.createFault(bankException, qname);
+	}
+
+	@Benchmark
+	public SoapFault createFaultFromTemplate() {
+		return template.createFault();
+	}
+}
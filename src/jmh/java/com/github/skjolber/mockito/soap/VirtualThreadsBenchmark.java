@@ -0,0 +1,117 @@
+package com.github.skjolber.mockito.soap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+/**
+ * Time to complete a burst of concurrent requests against a mock with a blocking answer, in the default platform
+ * thread mode and in virtual thread mode. Virtual thread mode requires Java 21 or later, and is skipped otherwise.
+ * High concurrency levels require a correspondingly high open file limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+
+	private static final String ADDRESS = "http://localhost:12353/service";
+
+	private static final long ANSWER_DELAY = 100;
+
+	private static final String REQUEST = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Header><bankRequestHeader xmlns=\"http://example.bank.skjolber.github.com/v1\"><secret>abc</secret></bankRequestHeader></soap:Header>"
+			+ "<soap:Body><getAccountsRequest xmlns=\"http://example.bank.skjolber.github.com/v1\"><customerNumber>123456789</customerNumber></getAccountsRequest></soap:Body>"
+			+ "</soap:Envelope>";
+
+	@Param({"platform", "virtual"})
+	private String threads;
+
+	@Param({"1000", "10000", "50000"})
+	private int concurrency;
+
+	private SoapServerRule soap;
+	private HttpClient client;
+	private HttpRequest request;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		soap = SoapServerRule.newInstance();
+		if(threads.equals("virtual")) {
+			soap.withVirtualThreads();
+			if(!soap.isVirtualThreads()) {
+				throw new IllegalStateException("Virtual threads are not supported by this JVM");
+			}
+		}
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS);
+		GetAccountsResponse response = new GetAccountsResponse();
+		response.getAccount().add("1234");
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(invocation -> {
+			// blocking answer
+			Thread.sleep(ANSWER_DELAY);
+			return response;
+		});
+
+		client = HttpClient.newHttpClient();
+		request = HttpRequest.newBuilder(URI.create(ADDRESS))
+				.header("Content-Type", "text/xml")
+				.POST(HttpRequest.BodyPublishers.ofString(REQUEST))
+				.build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		soap.destroy();
+	}
+
+	@Benchmark
+	public int burst() throws Exception {
+		List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(concurrency);
+		for(int i = 0; i < concurrency; i++) {
+			responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+		}
+		int failed = 0;
+		for (CompletableFuture<HttpResponse<Void>> response : responses) {
+			try {
+				if(response.get().statusCode() != 200) {
+					failed++;
+				}
+			} catch(Exception e) {
+				failed++;
+			}
+		}
+		if(failed > 0) {
+			throw new IllegalStateException(failed + " of " + concurrency + " requests failed");
+		}
+		return failed;
+	}
+}
@@ -0,0 +1,143 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Scheduler for completing delayed requests, implemented as a hashed timer wheel, so that scheduling is constant time
+ * regardless of the number of pending tasks. A single daemon thread serves all endpoints, and runs the (short) tasks
+ * itself.
+ * <br><br>
+ * Tasks never run early, but may run up to one tick late.
+ */
+class DelayScheduler {
+
+	private static final long TICK = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final int WHEEL_SIZE = 512;
+
+	private static final DelayScheduler INSTANCE = new DelayScheduler(TICK, WHEEL_SIZE);
+
+	public static DelayScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	private static class Timeout {
+
+		private final Runnable task;
+		private final long deadline;
+		private long rounds;
+
+		Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+	}
+
+	private final long tickDuration;
+	private final List<List<Timeout>> wheel;
+	private final int mask;
+
+	// handed over from scheduling threads to the worker thread, which owns the wheel
+	private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+
+	private final long startTime;
+	private long tick;
+
+	private Thread worker;
+	private volatile boolean stopped;
+
+	DelayScheduler(long tickDuration, int wheelSize) {
+		if(Integer.bitCount(wheelSize) != 1) {
+			throw new IllegalArgumentException("Expected wheel size power of two, got " + wheelSize);
+		}
+		this.tickDuration = tickDuration;
+		this.mask = wheelSize - 1;
+		this.wheel = new ArrayList<>(wheelSize);
+		for(int i = 0; i < wheelSize; i++) {
+			wheel.add(new ArrayList<>());
+		}
+		this.startTime = System.nanoTime();
+	}
+
+	/**
+	 * Schedule a task.
+	 *
+	 * @param task task to run
+	 * @param delay delay in milliseconds
+	 */
+	public void schedule(Runnable task, long delay) {
+		start();
+
+		added.add(new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay)));
+	}
+
+	private synchronized void start() {
+		if(worker == null) {
+			worker = new Thread(this::run, "soap-delay-scheduler");
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Stop the worker thread. Pending tasks are not run.
+	 */
+	synchronized void stop() {
+		stopped = true;
+		if(worker != null) {
+			LockSupport.unpark(worker);
+		}
+	}
+
+	private void run() {
+		while(true) {
+			long deadline = startTime + (tick + 1) * tickDuration;
+			long sleep;
+			while((sleep = deadline - System.nanoTime()) > 0 && !stopped) {
+				LockSupport.parkNanos(sleep);
+			}
+			if(stopped) {
+				return;
+			}
+
+			transfer();
+			expire(wheel.get((int)(tick & mask)));
+
+			tick++;
+		}
+	}
+
+	private void transfer() {
+		Timeout timeout;
+		while((timeout = added.poll()) != null) {
+			long ticks = (timeout.deadline - startTime) / tickDuration;
+			timeout.rounds = (ticks - tick) / wheel.size();
+
+			// already expired tasks go in the current bucket
+			wheel.get((int)(Math.max(ticks, tick) & mask)).add(timeout);
+		}
+	}
+
+	private void expire(List<Timeout> bucket) {
+		int size = bucket.size();
+		int remaining = 0;
+		for(int i = 0; i < size; i++) {
+			Timeout timeout = bucket.get(i);
+			if(timeout.rounds <= 0) {
+				try {
+					timeout.task.run();
+				} catch (Throwable e) {
+					// ignore, tasks handle their own errors
+				}
+			} else {
+				timeout.rounds--;
+				bucket.set(remaining++, timeout);
+			}
+		}
+		bucket.subList(remaining, size).clear();
+	}
+}
@@ -0,0 +1,194 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.helpers.DOMUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Template for SOAP faults which are thrown repeatedly. The fault detail is parsed or marshalled once, and each fault
+ * gets a copy of it.
+ * <br><br>
+ * Text and attribute values may contain parameters on the form <code>${name}</code>, which are substituted when creating a fault.
+ * <br><br>
+ * A template is also a Mockito {@linkplain Answer} which throws a new fault on each call:
+ * <pre>
+ * when(serviceMock.getAccounts(any(GetAccountsRequest.class))).thenAnswer(FaultTemplate.newInstance(bankException));
+ * </pre>
+ */
+public class FaultTemplate implements Answer<Object> {
+
+	private static final Pattern PARAMETER = Pattern.compile("\\$\\{([^}]+)\\}");
+
+	/**
+	 * Create template with XML string fault detail.
+	 *
+	 * @param detail XML string fault detail
+	 * @return fault template
+	 */
+	public static FaultTemplate newInstance(String detail) {
+		return newInstance(SoapServiceFault.parse(detail));
+	}
+
+	/**
+	 * Create template with JAXB-serializable fault detail.
+	 *
+	 * @param detail JAXB-serializable detail
+	 * @return fault template
+	 */
+	public static FaultTemplate newInstance(Object detail) {
+		return newInstance(detail, null);
+	}
+
+	/**
+	 * Create template with JAXB-serializable fault detail.
+	 *
+	 * @param detail JAXB-serializable detail
+	 * @param qname element name, for details which are not root elements
+	 * @return fault template
+	 */
+	public static FaultTemplate newInstance(Object detail, QName qname) {
+		return newInstance(SoapServiceFault.marshal(detail, qname));
+	}
+
+	/**
+	 * Create template with fault detail.
+	 *
+	 * @param detail fault detail
+	 * @return fault template
+	 */
+	public static FaultTemplate newInstance(Node detail) {
+		return newInstance("message", SoapFault.FAULT_CODE_SERVER, detail);
+	}
+
+	/**
+	 * Create template.
+	 *
+	 * @param message fault message, possibly with parameters
+	 * @param faultCode fault code
+	 * @param detail fault detail, or null
+	 * @return fault template
+	 */
+	public static FaultTemplate newInstance(String message, QName faultCode, Node detail) {
+		return new FaultTemplate(message, faultCode, detail);
+	}
+
+	private final String message;
+	private final QName faultCode;
+	private final Element detail;
+	// DOM implementations do not guarantee thread-safe reads, so each thread copies from a template of its own
+	private final ThreadLocal<Element> details = ThreadLocal.withInitial(this::copyDetail);
+	private final boolean parameters;
+
+	private FaultTemplate(String message, QName faultCode, Node detail) {
+		this.message = message;
+		this.faultCode = faultCode;
+		if(detail != null) {
+			this.detail = new SoapFault(message, faultCode).getOrCreateDetail();
+			this.detail.appendChild(this.detail.getOwnerDocument().importNode(detail, true));
+		} else {
+			this.detail = null;
+		}
+		this.parameters = PARAMETER.matcher(message).find() || (this.detail != null && hasParameters(this.detail));
+	}
+
+	private static boolean hasParameters(Node node) {
+		if(node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+			return PARAMETER.matcher(node.getNodeValue()).find();
+		}
+		NamedNodeMap attributes = node.getAttributes();
+		if(attributes != null) {
+			for(int i = 0; i < attributes.getLength(); i++) {
+				if(PARAMETER.matcher(attributes.item(i).getNodeValue()).find()) {
+					return true;
+				}
+			}
+		}
+		for(Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if(hasParameters(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Create SOAP fault.
+	 *
+	 * @return new SOAP fault
+	 */
+	public SoapFault createFault() {
+		return createFault(Collections.emptyMap());
+	}
+
+	/**
+	 * Create SOAP fault, substituting parameters.
+	 *
+	 * @param values parameter values, unknown parameters are left as-is
+	 * @return new SOAP fault
+	 */
+	public SoapFault createFault(Map<String, String> values) {
+		SoapFault fault = new SoapFault(parameters ? substitute(message, values) : message, faultCode);
+		if(detail != null) {
+			// import into a document of its own, as clones share (and substitution would modify) the owner document
+			// of the template
+			Element copy = (Element)DOMUtils.createDocument().importNode(details.get(), true);
+			if(parameters) {
+				substitute(copy, values);
+			}
+			fault.setDetail(copy);
+		}
+		return fault;
+	}
+
+	private synchronized Element copyDetail() {
+		// once per thread
+		return (Element)DOMUtils.createDocument().importNode(detail, true);
+	}
+
+	private static void substitute(Node node, Map<String, String> values) {
+		if(node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+			node.setNodeValue(substitute(node.getNodeValue(), values));
+			return;
+		}
+		NamedNodeMap attributes = node.getAttributes();
+		if(attributes != null) {
+			for(int i = 0; i < attributes.getLength(); i++) {
+				Node attribute = attributes.item(i);
+				attribute.setNodeValue(substitute(attribute.getNodeValue(), values));
+			}
+		}
+		for(Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+			substitute(child, values);
+		}
+	}
+
+	private static String substitute(String value, Map<String, String> values) {
+		Matcher matcher = PARAMETER.matcher(value);
+		if(!matcher.find()) {
+			return value;
+		}
+		StringBuilder builder = new StringBuilder(value.length());
+		do {
+			String replacement = values.get(matcher.group(1));
+			matcher.appendReplacement(builder, Matcher.quoteReplacement(replacement != null ? replacement : matcher.group()));
+		} while(matcher.find());
+		matcher.appendTail(builder);
+		return builder.toString();
+	}
+
+	@Override
+	public Object answer(InvocationOnMock invocation) throws Throwable {
+		throw createFault();
+	}
+}
@@ -0,0 +1,169 @@
+package com.github.skjolber.mockito.soap;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.validation.Schema;
+
+import org.w3c.dom.Node;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.ws.Holder;
+
+/**
+ * Deep copy of JAXB object graphs via DOM, so that no XML text is written or parsed.
+ * <br><br>
+ * Copiers are cached per set of classes, and reuse pooled marshallers and unmarshallers.
+ * <br><br>
+ * Schema validation only applies to values with a known global element name, i.e. root elements and BARE-style
+ * parameters and results. Wrapped-style arguments are not validated.
+ */
+class JaxbCopier {
+
+	private static final QName COPY = new QName("urn:mockito-soap-cxf", "copy");
+
+	private static final Map<Set<Class<?>>, JaxbCopier> COPIERS = new ConcurrentHashMap<>();
+
+	/**
+	 * Get a copier for the given classes.
+	 *
+	 * @param classes JAXB classes
+	 * @return copier
+	 */
+	public static JaxbCopier getInstance(Collection<Class<?>> classes) {
+		return COPIERS.computeIfAbsent(new LinkedHashSet<>(classes), JaxbCopier::new);
+	}
+
+	private final MarshallerPool pool;
+
+	private JaxbCopier(Set<Class<?>> classes) {
+		try {
+			pool = new MarshallerPool(JAXBContext.newInstance(classes.toArray(new Class<?>[classes.size()])));
+		} catch (JAXBException e) {
+			throw new IllegalArgumentException("Unable to create JAXB context for " + classes, e);
+		}
+	}
+
+	/**
+	 * Copy a value.
+	 *
+	 * @param value value to copy
+	 * @param name element name, or null
+	 * @param schema schema to validate against, or null. Only applies to values with a known element name, so not to
+	 * wrapped-style arguments.
+	 * @return the copy
+	 * @throws JAXBException if the value could not be copied, or is not valid
+	 */
+	public Object copy(Object value, QName name, Schema schema) throws JAXBException {
+		if(value == null || isImmutable(value)) {
+			return value;
+		}
+		if(value instanceof byte[]) {
+			return ((byte[])value).clone();
+		}
+		if(value instanceof XMLGregorianCalendar) {
+			return ((XMLGregorianCalendar)value).clone();
+		}
+		if(value instanceof Holder) {
+			return new Holder<>(copy(((Holder<?>)value).value, name, schema));
+		}
+		if(value instanceof List) {
+			List<Object> list = new ArrayList<>();
+			for(Object item : (List<?>)value) {
+				list.add(copy(item, null, null));
+			}
+			return list;
+		}
+		return copyElement(value, name, schema);
+	}
+
+	static <T> JAXBElement<T> newElement(QName name, Class<T> type, Object value) {
+		return new JAXBElement<>(name, type, type.cast(value));
+	}
+
+	private Object copyElement(Object value, QName name, Schema schema) throws JAXBException {
+		Class<?> type = value.getClass();
+
+		Object element;
+		if(type.isAnnotationPresent(XmlRootElement.class)) {
+			element = value;
+		} else if(value instanceof JAXBElement) {
+			element = value;
+		} else {
+			if(name == null) {
+				// not a global element, so cannot be validated
+				name = COPY;
+				schema = null;
+			}
+			element = newElement(name, type, value);
+		}
+
+		DOMResult result = new DOMResult();
+		Marshaller marshaller = pool.borrow(false);
+		try {
+			marshaller.setSchema(schema);
+			marshaller.marshal(element, result);
+		} finally {
+			pool.release(marshaller);
+		}
+
+		Unmarshaller unmarshaller = pool.borrowUnmarshaller();
+		try {
+			if(value instanceof JAXBElement) {
+				return unmarshaller.unmarshal(result.getNode(), ((JAXBElement<?>)value).getDeclaredType());
+			}
+			return unmarshaller.unmarshal(result.getNode(), type).getValue();
+		} finally {
+			pool.release(unmarshaller);
+		}
+	}
+
+	/**
+	 * Unmarshal an element.
+	 *
+	 * @param <T> value type
+	 * @param node element
+	 * @param type value type
+	 * @return the value
+	 * @throws JAXBException if the element could not be unmarshalled
+	 */
+	public <T> T unmarshal(Node node, Class<T> type) throws JAXBException {
+		Unmarshaller unmarshaller = pool.borrowUnmarshaller();
+		try {
+			return unmarshaller.unmarshal(node, type).getValue();
+		} finally {
+			pool.release(unmarshaller);
+		}
+	}
+
+	private static boolean isImmutable(Object value) {
+		return value instanceof String
+				|| value instanceof Boolean
+				|| value instanceof Character
+				|| value instanceof Enum
+				|| value instanceof QName
+				|| value instanceof Integer
+				|| value instanceof Long
+				|| value instanceof Short
+				|| value instanceof Byte
+				|| value instanceof Double
+				|| value instanceof Float
+				|| value instanceof BigInteger
+				|| value instanceof BigDecimal;
+	}
+}
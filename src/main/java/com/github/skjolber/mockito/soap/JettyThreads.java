@@ -0,0 +1,117 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.transport.http_jetty.JettyHTTPServerEngine;
+import org.apache.cxf.transport.http_jetty.JettyHTTPServerEngineFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.VirtualThreads;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Thread pools for the Jetty engines of the rules and extensions.
+ * <br><br>
+ * In virtual thread mode, requests (including the mock invocation) are handled on virtual threads, while Jetty's
+ * selectors stay on the pool's platform threads. Virtual threads require Java 21 or later; on earlier versions the
+ * pool falls back to platform threads.
+ */
+class JettyThreads {
+
+	private JettyThreads() {
+	}
+
+	/**
+	 * Check whether virtual threads are available on the current JVM.
+	 *
+	 * @return true if available
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return VirtualThreads.areSupported();
+	}
+
+	/**
+	 * Create and start a thread pool.
+	 *
+	 * @param name thread name prefix
+	 * @param virtualThreads if true, handle requests on virtual threads, if supported
+	 * @return started thread pool
+	 * @throws IOException if the pool could not be started
+	 */
+	public static QueuedThreadPool newThreadPool(String name, boolean virtualThreads) throws IOException {
+		QueuedThreadPool threadPool = new QueuedThreadPool();
+		threadPool.setName(name);
+		threadPool.setMinThreads(2);
+		if(virtualThreads && isVirtualThreadsSupported()) {
+			threadPool.setVirtualThreadsExecutor(VirtualThreads.getNamedVirtualThreadsExecutor(name + "-virtual"));
+		}
+		try {
+			// started here, so that engines do not stop it when they shut down
+			threadPool.start();
+		} catch(Exception e) {
+			throw new IOException(e);
+		}
+		return threadPool;
+	}
+
+	/**
+	 * Stop a thread pool.
+	 *
+	 * @param threadPool thread pool, or null
+	 */
+	public static void stop(QueuedThreadPool threadPool) {
+		if(threadPool != null) {
+			try {
+				threadPool.stop();
+			} catch(Exception e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Make the engine for the port of an HTTP address use the given thread pool.
+	 *
+	 * @param bus bus
+	 * @param address endpoint address
+	 * @param threadPool thread pool
+	 * @throws IllegalStateException if the engine for the port is already running with another thread pool,
+	 * which cannot be replaced
+	 */
+	public static void configure(Bus bus, String address, QueuedThreadPool threadPool) {
+		URL url;
+		try {
+			url = new URL(address);
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException(address, e);
+		}
+		if(!url.getProtocol().startsWith("http")) {
+			return;
+		}
+		int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+
+		JettyHTTPServerEngineFactory factory = bus.getExtension(JettyHTTPServerEngineFactory.class);
+		if(factory == null) {
+			return;
+		}
+		JettyHTTPServerEngine existing = factory.retrieveJettyHTTPServerEngine(port);
+		if(existing != null) {
+			Server server = existing.getServer();
+			if(server == null) {
+				// not started yet
+				existing.setThreadPool(threadPool);
+			} else if(server.getThreadPool() != threadPool) {
+				throw new IllegalStateException("Engine for port " + port + " is already running with another thread pool");
+			}
+			return;
+		}
+		try {
+			JettyHTTPServerEngine engine = factory.createJettyHTTPServerEngine(url.getHost(), port, url.getProtocol());
+			engine.setThreadPool(threadPool);
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Unable to create engine for " + address, e);
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.github.skjolber.mockito.soap;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency added to requests before the mock is invoked.
+ * <br><br>
+ * Configure for all operations of an endpoint using the {@linkplain #PROPERTY} endpoint property, or for a single operation
+ * using the {@linkplain #property(String)} endpoint property:
+ * <pre>
+ * soap.mock(MyServicePortType.class, address, properties(
+ *     Latency.PROPERTY, Latency.uniform(Duration.ofMillis(10), Duration.ofMillis(20)),
+ *     Latency.property("getAccounts"), Latency.fixed(Duration.ofSeconds(1))
+ * ));
+ * </pre>
+ *
+ * For HTTP endpoints, requests are suspended while waiting, so no server thread is held.
+ */
+public abstract class Latency {
+
+	/** Endpoint property for latency of all operations */
+	public static final String PROPERTY = "mockito-soap-cxf.latency";
+
+	/**
+	 * Get endpoint property for the latency of a single operation.
+	 *
+	 * @param operation operation name, i.e. the local part of the operation QName
+	 * @return endpoint property
+	 */
+	public static String property(String operation) {
+		return PROPERTY + "." + operation;
+	}
+
+	/**
+	 * Fixed latency.
+	 *
+	 * @param delay delay
+	 * @return latency
+	 */
+	public static Latency fixed(Duration delay) {
+		long millis = toMillis(delay);
+		return new Latency() {
+			@Override
+			public long nextDelay() {
+				return millis;
+			}
+		};
+	}
+
+	/**
+	 * Uniformly distributed latency.
+	 *
+	 * @param min minimum delay (inclusive)
+	 * @param max maximum delay (inclusive)
+	 * @return latency
+	 */
+	public static Latency uniform(Duration min, Duration max) {
+		long minMillis = toMillis(min);
+		long maxMillis = toMillis(max);
+		if(minMillis > maxMillis) {
+			throw new IllegalArgumentException("Expected min <= max, got " + min + " and " + max);
+		}
+		return new Latency() {
+			@Override
+			public long nextDelay() {
+				return ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+			}
+		};
+	}
+
+	/**
+	 * Log-normal distributed latency, which is typical for service response times.
+	 *
+	 * @param median median delay
+	 * @param sigma standard deviation of the underlying normal distribution, i.e. 0.5 for a moderately long tail
+	 * @return latency
+	 */
+	public static Latency logNormal(Duration median, double sigma) {
+		long medianMillis = toMillis(median);
+		if(medianMillis == 0) {
+			throw new IllegalArgumentException("Expected positive median");
+		}
+		if(sigma < 0) {
+			throw new IllegalArgumentException("Expected non-negative sigma");
+		}
+		double mu = Math.log(medianMillis);
+		return new Latency() {
+			@Override
+			public long nextDelay() {
+				return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+			}
+		};
+	}
+
+	/**
+	 * Latency following a percentile table, i.e. as exported from production histograms. Delays are interpolated
+	 * linearly between percentiles.
+	 *
+	 * @param percentiles map of percentile (0 to 100) to delay, i.e. 50 to 10ms, 99 to 200ms and 100 to 1s
+	 * @return latency
+	 */
+	public static Latency percentiles(Map<Double, Duration> percentiles) {
+		if(percentiles == null || percentiles.isEmpty()) {
+			throw new IllegalArgumentException("Expected percentiles");
+		}
+		NavigableMap<Double, Long> table = new TreeMap<>();
+		table.put(0d, 0L);
+		long previous = 0;
+		for (Entry<Double, Duration> entry : new TreeMap<>(percentiles).entrySet()) {
+			double percentile = entry.getKey();
+			if(percentile < 0 || percentile > 100) {
+				throw new IllegalArgumentException("Expected percentile between 0 and 100, got " + percentile);
+			}
+			long millis = toMillis(entry.getValue());
+			if(millis < previous) {
+				throw new IllegalArgumentException("Expected increasing delay for percentile " + percentile);
+			}
+			table.put(percentile, millis);
+			previous = millis;
+		}
+		return new Latency() {
+			@Override
+			public long nextDelay() {
+				double percentile = ThreadLocalRandom.current().nextDouble(100);
+
+				Entry<Double, Long> floor = table.floorEntry(percentile);
+				Entry<Double, Long> ceiling = table.ceilingEntry(percentile);
+				if(ceiling == null) {
+					return floor.getValue();
+				}
+				if(ceiling.getKey().equals(floor.getKey())) {
+					return floor.getValue();
+				}
+				double fraction = (percentile - floor.getKey()) / (ceiling.getKey() - floor.getKey());
+				return floor.getValue() + Math.round(fraction * (ceiling.getValue() - floor.getValue()));
+			}
+		};
+	}
+
+	private static long toMillis(Duration delay) {
+		if(delay == null || delay.isNegative()) {
+			throw new IllegalArgumentException("Expected non-negative delay");
+		}
+		return delay.toMillis();
+	}
+
+	/**
+	 * Get the next delay.
+	 *
+	 * @return delay in milliseconds
+	 */
+	public abstract long nextDelay();
+
+}
@@ -0,0 +1,105 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram with log-linear buckets, in the style of HdrHistogram. Values are recorded with a relative precision
+ * of about 3%.
+ */
+class LatencyHistogram {
+
+	// values below 2^SUB_BUCKET_BITS are recorded exactly
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int HALF_SUB_BUCKET_COUNT = 1 << (SUB_BUCKET_BITS - 1);
+
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 2) * HALF_SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	static int getIndex(long value) {
+		if(value < HALF_SUB_BUCKET_COUNT * 2) {
+			return (int)value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		return shift * HALF_SUB_BUCKET_COUNT + (int)(value >>> shift);
+	}
+
+	static long getLowestValue(int index) {
+		if(index < HALF_SUB_BUCKET_COUNT * 2) {
+			return index;
+		}
+		int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+		return (long)(index - shift * HALF_SUB_BUCKET_COUNT) << shift;
+	}
+
+	static long getHighestValue(int index) {
+		if(index < HALF_SUB_BUCKET_COUNT * 2) {
+			return index;
+		}
+		int shift = index / HALF_SUB_BUCKET_COUNT - 1;
+		return getLowestValue(index) + (1L << shift) - 1;
+	}
+
+	/**
+	 * Record a value.
+	 *
+	 * @param value non-negative value
+	 */
+	public void record(long value) {
+		if(value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(getIndex(value));
+		count.increment();
+		sum.add(value);
+
+		long current = max.get();
+		while(value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double)sum.sum() / n;
+	}
+
+	/**
+	 * Get value at percentile.
+	 *
+	 * @param percentile percentile, between 0 and 100
+	 * @return the highest value equivalent to the value at the percentile, or 0 if no values were recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			total += counts.get(i);
+		}
+		if(total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long)Math.ceil(percentile / 100 * total));
+
+		long cumulative = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			cumulative += counts.get(i);
+			if(cumulative >= target) {
+				return Math.min(getHighestValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+}
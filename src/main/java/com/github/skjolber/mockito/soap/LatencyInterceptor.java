@@ -0,0 +1,114 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.continuations.SuspendedInvocationException;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+/**
+ * Interceptor which delays requests before the mock is invoked, according to the configured {@linkplain Latency}.
+ * <br><br>
+ * If the transport supports continuations, the request is suspended and later resumed by the {@linkplain DelayScheduler},
+ * otherwise the current thread sleeps.
+ */
+class LatencyInterceptor extends AbstractPhaseInterceptor<Message> {
+
+	/**
+	 * Check whether latency is configured in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties
+	 * @return true if configured
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		for (String key : properties.keySet()) {
+			if(key.equals(Latency.PROPERTY) || key.startsWith(Latency.PROPERTY + ".")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public static LatencyInterceptor newInstance(Map<String, Object> properties) {
+		Latency latency = null;
+		Map<String, Latency> operations = new HashMap<>();
+		for (Entry<String, Object> entry : properties.entrySet()) {
+			String key = entry.getKey();
+			if(key.equals(Latency.PROPERTY)) {
+				latency = toLatency(key, entry.getValue());
+			} else if(key.startsWith(Latency.PROPERTY + ".")) {
+				operations.put(key.substring(Latency.PROPERTY.length() + 1), toLatency(key, entry.getValue()));
+			}
+		}
+		return new LatencyInterceptor(latency, operations);
+	}
+
+	private static Latency toLatency(String key, Object value) {
+		if(!(value instanceof Latency)) {
+			throw new IllegalArgumentException("Expected " + Latency.class.getName() + " for property " + key + ", got " + value);
+		}
+		return (Latency)value;
+	}
+
+	private final Latency latency;
+	private final Map<String, Latency> operations;
+
+	LatencyInterceptor(Latency latency, Map<String, Latency> operations) {
+		super(Phase.PRE_INVOKE);
+		this.latency = latency;
+		this.operations = operations;
+	}
+
+	@Override
+	public void handleMessage(Message message) throws Fault {
+		ContinuationProvider provider = message.get(ContinuationProvider.class);
+		Continuation continuation = provider != null ? provider.getContinuation() : null;
+		if(continuation != null && !continuation.isNew()) {
+			// resumed after delay
+			return;
+		}
+
+		long delay = nextDelay(message.getExchange());
+		if(delay <= 0) {
+			return;
+		}
+
+		if(continuation != null) {
+			synchronized (continuation) {
+				continuation.suspend(0);
+				DelayScheduler.getInstance().schedule(() -> {
+					synchronized (continuation) {
+						continuation.resume();
+					}
+				}, delay);
+			}
+			throw new SuspendedInvocationException();
+		}
+
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new Fault(e);
+		}
+	}
+
+	private long nextDelay(Exchange exchange) {
+		BindingOperationInfo operation = exchange.getBindingOperationInfo();
+		if(operation != null && !operations.isEmpty()) {
+			Latency operationLatency = operations.get(operation.getName().getLocalPart());
+			if(operationLatency != null) {
+				return operationLatency.nextDelay();
+			}
+		}
+		return latency != null ? latency.nextDelay() : 0;
+	}
+}
@@ -0,0 +1,73 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.Unmarshaller;
+
+/**
+ * JAXB context with pools of marshallers and unmarshallers, which are not thread-safe.
+ */
+class MarshallerPool {
+
+	private final JAXBContext context;
+	private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<>();
+	private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<>();
+
+	MarshallerPool(Class<?> type) {
+		try {
+			this.context = JAXBContext.newInstance(type);
+		} catch (JAXBException e) {
+			throw new IllegalArgumentException("Unable to create JAXB context for " + type.getName(), e);
+		}
+	}
+
+	MarshallerPool(JAXBContext context) {
+		this.context = context;
+	}
+
+	public JAXBContext getContext() {
+		return context;
+	}
+
+	/**
+	 * Borrow a marshaller; return it using {@linkplain #release(Marshaller)} when done.
+	 *
+	 * @param fragment value of the {@linkplain Marshaller#JAXB_FRAGMENT} property
+	 * @return marshaller
+	 * @throws JAXBException if a marshaller could not be created
+	 */
+	public Marshaller borrow(boolean fragment) throws JAXBException {
+		Marshaller marshaller = marshallers.poll();
+		if(marshaller == null) {
+			marshaller = context.createMarshaller();
+		}
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, fragment);
+		return marshaller;
+	}
+
+	public void release(Marshaller marshaller) {
+		marshallers.offer(marshaller);
+	}
+
+	/**
+	 * Borrow an unmarshaller; return it using {@linkplain #release(Unmarshaller)} when done.
+	 *
+	 * @return unmarshaller
+	 * @throws JAXBException if an unmarshaller could not be created
+	 */
+	public Unmarshaller borrowUnmarshaller() throws JAXBException {
+		Unmarshaller unmarshaller = unmarshallers.poll();
+		if(unmarshaller == null) {
+			unmarshaller = context.createUnmarshaller();
+		}
+		return unmarshaller;
+	}
+
+	public void release(Unmarshaller unmarshaller) {
+		unmarshallers.offer(unmarshaller);
+	}
+}
@@ -0,0 +1,102 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics for a single operation of a mocked endpoint. Latency is measured from the request is received until the
+ * response (or fault) is sent, including any delays.
+ */
+public class OperationMetrics {
+
+	private final String operation;
+
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder faults = new LongAdder();
+	private final LongAdder requestBytes = new LongAdder();
+	private final LongAdder responseBytes = new LongAdder();
+
+	// in microseconds
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	OperationMetrics(String operation) {
+		this.operation = operation;
+	}
+
+	void record(long nanos, long requestSize, long responseSize, boolean fault) {
+		requests.increment();
+		if(fault) {
+			faults.increment();
+		}
+		if(requestSize > 0) {
+			requestBytes.add(requestSize);
+		}
+		if(responseSize > 0) {
+			responseBytes.add(responseSize);
+		}
+		latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	public String getOperation() {
+		return operation;
+	}
+
+	public long getRequestCount() {
+		return requests.sum();
+	}
+
+	public long getFaultCount() {
+		return faults.sum();
+	}
+
+	public long getRequestBytes() {
+		return requestBytes.sum();
+	}
+
+	public long getResponseBytes() {
+		return responseBytes.sum();
+	}
+
+	/**
+	 * Get latency at the given percentile.
+	 *
+	 * @param percentile percentile, between 0 and 100
+	 * @return latency in microseconds
+	 */
+	public long getLatency(double percentile) {
+		return latency.getValueAtPercentile(percentile);
+	}
+
+	/**
+	 * Get the mean latency.
+	 *
+	 * @return latency in microseconds
+	 */
+	public double getMeanLatency() {
+		return latency.getMean();
+	}
+
+	/**
+	 * Get the max latency.
+	 *
+	 * @return latency in microseconds
+	 */
+	public long getMaxLatency() {
+		return latency.getMax();
+	}
+
+	void toJson(StringBuilder builder) {
+		builder.append("{\"requests\":").append(getRequestCount());
+		builder.append(",\"faults\":").append(getFaultCount());
+		builder.append(",\"requestBytes\":").append(getRequestBytes());
+		builder.append(",\"responseBytes\":").append(getResponseBytes());
+		builder.append(",\"latencyMicros\":{");
+		builder.append("\"mean\":").append(Math.round(getMeanLatency()));
+		builder.append(",\"p50\":").append(getLatency(50));
+		builder.append(",\"p90\":").append(getLatency(90));
+		builder.append(",\"p99\":").append(getLatency(99));
+		builder.append(",\"p999\":").append(getLatency(99.9));
+		builder.append(",\"max\":").append(getMaxLatency());
+		builder.append("}}");
+	}
+}
@@ -0,0 +1,109 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Port leases shared between JVMs on the same machine, so that parallel test processes (i.e. Surefire forks) do not
+ * attempt to reserve the same ports.
+ * <br><br>
+ * A lease is an exclusive lock on the byte at the port's offset in a common lease file. Locks are held by the operating
+ * system on behalf of the process, so leases of a crashed process are released automatically.
+ */
+class PortLeases {
+
+	static final String FILE_NAME = "mockito-soap-cxf-ports.lease";
+
+	private static final PortLeases INSTANCE = new PortLeases(new File(System.getProperty("java.io.tmpdir"), FILE_NAME));
+
+	/** Leases which always succeed, for ports which are never bound */
+	static final PortLeases NONE = new PortLeases(null);
+
+	public static PortLeases getInstance() {
+		return INSTANCE;
+	}
+
+	private final File file;
+	private FileChannel channel;
+	private boolean disabled;
+	private final Map<Integer, FileLock> leases = new ConcurrentHashMap<>();
+
+	PortLeases(File file) {
+		this.file = file;
+	}
+
+	private synchronized FileChannel getChannel() {
+		if(channel == null && !disabled && file != null) {
+			try {
+				channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			} catch (IOException e) {
+				// without a lease file, ports are still verified by binding
+				disabled = true;
+			}
+		}
+		return channel;
+	}
+
+	/**
+	 * Attempt to lease a port.
+	 *
+	 * @param port the port
+	 * @return true if the port was leased (or leases are not available), false if leased by another process
+	 */
+	public boolean lease(int port) {
+		FileChannel channel = getChannel();
+		if(channel == null) {
+			return true;
+		}
+		try {
+			FileLock lock = channel.tryLock(port, 1, false);
+			if(lock == null) {
+				return false;
+			}
+			leases.put(port, lock);
+			return true;
+		} catch (OverlappingFileLockException e) {
+			// already leased within this JVM
+			return false;
+		} catch (IOException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Release a previously leased port.
+	 *
+	 * @param port the port
+	 */
+	public void release(int port) {
+		FileLock lock = leases.remove(port);
+		if(lock != null) {
+			try {
+				lock.release();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * Release all leases and close the lease file.
+	 */
+	public synchronized void close() {
+		leases.keySet().forEach(this::release);
+		if(channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// ignore
+			}
+			channel = null;
+		}
+	}
+}
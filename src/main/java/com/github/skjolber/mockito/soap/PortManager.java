@@ -3,6 +3,12 @@ package com.github.skjolber.mockito.soap;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.net.ServerSocketFactory;
 
 /**
@@ -15,6 +21,9 @@ abstract class PortManager<T> {
 
 	static final int PORT_RANGE_MAX = 65535;
 
+	/** Maximum number of ports reserved concurrently */
+	static final int MAX_PARALLEL_RESERVATIONS = 8;
+
 	/**
 	 * Encapsulates a single port and its associated data.
 	 */
@@ -47,9 +56,11 @@ abstract class PortManager<T> {
 		}
 
 		public void release() {
-			if(data != null) {
+			if(port != -1) {
 				PortManager.this.release(data);
 				System.clearProperty(name);
+				leases.release(port);
+				claimed.remove(port);
 				port = -1;
 				data = null;
 			}
@@ -57,9 +68,29 @@ abstract class PortManager<T> {
 
 	}
 
+	/**
+	 * Immutable snapshot of port names, numbers and data, for lock-free lookups.
+	 */
+	private static class Registry<T> {
+
+		private final Map<String, Integer> ports;
+		private final Map<Integer, T> data;
+
+		Registry(Map<String, Integer> ports, Map<Integer, T> data) {
+			this.ports = Collections.unmodifiableMap(ports);
+			this.data = Collections.unmodifiableMap(data);
+		}
+	}
+
 	private int portRangeStart;
 	private int portRangeEnd;
 	private List<Port> ports = new ArrayList<>();
+	// immutable view of the ports, replaced whenever reservations change
+	private volatile Registry<T> registry = new Registry<>(Collections.emptyMap(), Collections.emptyMap());
+	// candidate ports currently being reserved or held, so that concurrent reservations do not collide
+	private final Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+	// ports leased by other processes are skipped without binding
+	private final PortLeases leases;
 
 	/**
 	 * Constructs a port manager whose ports will be allocated in the given port range.
@@ -68,6 +99,17 @@ abstract class PortManager<T> {
 	 * @param portRangeEnd the last port number in the range
 	 */
 	public PortManager(int portRangeStart, int portRangeEnd) {
+		this(portRangeStart, portRangeEnd, PortLeases.getInstance());
+	}
+
+	/**
+	 * Constructs a port manager whose ports will be allocated in the given port range.
+	 *
+	 * @param portRangeStart the first port number in the range
+	 * @param portRangeEnd the last port number in the range
+	 * @param leases leases shared with other processes
+	 */
+	PortManager(int portRangeStart, int portRangeEnd, PortLeases leases) {
 		if(portRangeStart <= 0) {
 			throw new IllegalArgumentException("Port range start must be greater than 0.");
 		}
@@ -79,6 +121,7 @@ abstract class PortManager<T> {
 		}
 		this.portRangeStart = portRangeStart;
 		this.portRangeEnd = portRangeEnd;
+		this.leases = leases;
 	}
 
 	public static boolean isPortAvailable(int port) {
@@ -106,21 +149,19 @@ abstract class PortManager<T> {
 			for(String name : names) {
 				ports.add(new Port(name));
 			}
+			refresh();
 		}
 	}
 
 	/**
-	 * Returns all port names and respective port numbers.
+	 * Returns all port names and respective port numbers. The map is a snapshot, which does not reflect later
+	 * reservations or releases.
 	 *
-	 * @return a map of port name and port value (a valid port number
+	 * @return an immutable map of port name and port value (a valid port number
 	 *         if the port has been reserved, or -1 otherwise)
 	 */
 	public Map<String, Integer> getPorts() {
-		HashMap<String, Integer> ports = new HashMap<>();
-		for (Port reservation : this.ports) {
-			ports.put(reservation.getName(), reservation.getPort());
-		}
-		return ports;
+		return registry.ports;
 	}
 
 	/**
@@ -130,12 +171,11 @@ abstract class PortManager<T> {
 	 * @return a valid port number if the port has been reserved, -1 otherwise
 	 */
 	public int getPort(String name) {
-		for (Port reservation : ports) {
-			if(name.equals(reservation.getName())) {
-				return reservation.getPort();
-			}
+		Integer port = registry.ports.get(name);
+		if(port == null) {
+			throw new IllegalArgumentException("No reserved port for '" + name + "'.");
 		}
-		throw new IllegalArgumentException("No reserved port for '" + name + "'.");
+		return port;
 	}
 
 	/**
@@ -146,16 +186,27 @@ abstract class PortManager<T> {
 	 *         or null if the given port has not been reserved
 	 */
 	public T getData(int port) {
-		for(Port reservation : ports) {
-			if(reservation.getPort() == port) {
-				return reservation.getData();
+		return registry.data.get(port);
+	}
+
+	/**
+	 * Update the registry with the current reservations.
+	 */
+	private synchronized void refresh() {
+		Map<String, Integer> ports = new HashMap<>();
+		Map<Integer, T> data = new HashMap<>();
+		for(Port reservation : this.ports) {
+			ports.putIfAbsent(reservation.getName(), reservation.getPort());
+			if(reservation.getData() != null) {
+				data.put(reservation.getPort(), reservation.getData());
 			}
 		}
-		return null;
+		this.registry = new Registry<>(ports, data);
 	}
 
 	/**
-	 * Attempts to find and reserve a free port in the required range.
+	 * Attempts to find and reserve a free port in the required range. Each candidate port
+	 * is leased, then bound only once, by the reservation itself.
 	 *
 	 * @param port the port object to which the reserved port and
 	 *        associated data object will be assigned
@@ -165,30 +216,96 @@ abstract class PortManager<T> {
 		// starting at random offset
 		int portRange = portRangeEnd - portRangeStart + 1;
 
-		int offset = new Random().nextInt(portRange);
+		int offset = ThreadLocalRandom.current().nextInt(portRange);
 
 		for(int i = 0; i < portRange; i++) {
+			int candidatePort = portRangeStart + (offset + i) % portRange;
+			if(!isCandidate(candidatePort) || !claimed.add(candidatePort)) {
+				continue;
+			}
+			if(!leases.lease(candidatePort)) {
+				claimed.remove(candidatePort);
+				continue;
+			}
 			try {
-				int candidatePort = portRangeStart + (offset + portRange) % portRange;
-
-				if(isPortAvailable(candidatePort)) {
-					T data = reserve(candidatePort); // port might now be taken
-					port.reserve(candidatePort, data);
+				T data = reserve(candidatePort);
+				port.reserve(candidatePort, data);
 
-					return;
-				}
+				return;
 			} catch(Exception e) {
-				// continue
+				// port taken, continue
+				leases.release(candidatePort);
+				claimed.remove(candidatePort);
 			}
 		}
 		throw new RuntimeException("Unable to reserve port for " + port.getName());
 	}
 
 	/**
-	 * Reserves all ports.
+	 * Check whether a port should be attempted reserved, without binding to it.
+	 *
+	 * @param port the port
+	 * @return true if the port is not already known to be in use
+	 */
+	protected boolean isCandidate(int port) {
+		return !claimed.contains(port);
+	}
+
+	/**
+	 * Reserves all ports, concurrently if there is more than one. If any reservation fails,
+	 * all ports are released and the failure of the first failing port (in the order the ports
+	 * were added) is thrown, with the other failures suppressed.
 	 */
 	public void start() {
-		ports.forEach(this::reserve);
+		if(ports.size() <= 1) {
+			ports.forEach(this::reserve);
+			refresh();
+
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(ports.size(), MAX_PARALLEL_RESERVATIONS), r -> {
+			Thread thread = new Thread(r, PortManager.class.getSimpleName());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<>(ports.size());
+			for(Port port : ports) {
+				futures.add(executor.submit(() -> reserve(port)));
+			}
+
+			RuntimeException failure = null;
+			for(Future<?> future : futures) {
+				try {
+					future.get();
+				} catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+					failure = addFailure(failure, new RuntimeException("Interrupted while reserving ports", e));
+				} catch(ExecutionException e) {
+					failure = addFailure(failure, e.getCause());
+				}
+			}
+			if(failure != null) {
+				stop();
+
+				throw failure;
+			}
+			refresh();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static RuntimeException addFailure(RuntimeException failure, Throwable e) {
+		if(failure == null) {
+			if(e instanceof RuntimeException) {
+				return (RuntimeException)e;
+			}
+			return new RuntimeException(e);
+		}
+		failure.addSuppressed(e);
+		return failure;
 	}
 
 	/**
@@ -196,6 +313,7 @@ abstract class PortManager<T> {
 	 */
 	public void stop() {
 		ports.forEach(Port::release);
+		refresh();
 	}
 
 	/**
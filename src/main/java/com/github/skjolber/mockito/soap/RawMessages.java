@@ -0,0 +1,342 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stax.StAXSource;
+import javax.xml.validation.Schema;
+
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.transport.Conduit;
+import org.xml.sax.SAXException;
+
+/**
+ * Helpers for handling requests as raw bytes, bypassing the data binding.
+ */
+class RawMessages {
+
+	private static final String SOAP_11_ENVELOPE = "http://schemas.xmlsoap.org/soap/envelope/";
+	private static final String SOAP_12_ENVELOPE = "http://www.w3.org/2003/05/soap-envelope";
+
+	/**
+	 * Request key: the (qualified) name of the first SOAP body element plus a canonical hash of the body content,
+	 * and the envelope namespace.
+	 */
+	static class RequestKey {
+
+		private final String namespace;
+		private final String operation;
+		private final byte[] digest;
+		private final long hash;
+
+		RequestKey(String operation, byte[] digest) {
+			this(null, operation, digest);
+		}
+
+		RequestKey(String namespace, String operation, byte[] digest) {
+			this.namespace = namespace;
+			this.operation = operation;
+			this.digest = digest;
+			this.hash = digest != null ? ByteBuffer.wrap(digest).getLong() : 0L;
+		}
+
+		/**
+		 * Get the namespace of the envelope element, which identifies the SOAP version.
+		 *
+		 * @return the namespace, or null if the root element is not a SOAP envelope
+		 */
+		public String getNamespace() {
+			return namespace;
+		}
+
+		public String getOperation() {
+			return operation;
+		}
+
+		/**
+		 * Get the first 64 bits of the digest, for indexing.
+		 *
+		 * @return the hash
+		 */
+		public long getHash() {
+			return hash;
+		}
+
+		/**
+		 * Check whether another key has the same (full) digest, i.e. to rule out collisions of the 64-bit hash.
+		 *
+		 * @param key other key
+		 * @return true if the canonical forms are equal
+		 */
+		public boolean matches(RequestKey key) {
+			return Arrays.equals(digest, key.digest);
+		}
+	}
+
+	private RawMessages() {
+	}
+
+	/**
+	 * Read the request body, replacing the message input stream so that the request can still be processed normally.
+	 *
+	 * @param message request message
+	 * @return request bytes, or null if there is no input stream
+	 * @throws IOException if the request could not be read
+	 */
+	public static byte[] read(Message message) throws IOException {
+		InputStream in = message.getContent(InputStream.class);
+		if(in == null) {
+			return null;
+		}
+		ByteArrayOutputStream bout = new ByteArrayOutputStream(4096);
+		byte[] buffer = new byte[4096];
+		int read;
+		while((read = in.read(buffer)) != -1) {
+			bout.write(buffer, 0, read);
+		}
+		byte[] bytes = bout.toByteArray();
+		message.setContent(InputStream.class, new ByteArrayInputStream(bytes));
+		return bytes;
+	}
+
+	/**
+	 * Check whether the request is a plain (non-multipart) message, which can be handled as raw bytes.
+	 *
+	 * @param message request message
+	 * @return true if not multipart
+	 */
+	public static boolean isPlain(Message message) {
+		String contentType = (String)message.get(Message.CONTENT_TYPE);
+		return contentType == null || !contentType.toLowerCase().startsWith("multipart/");
+	}
+
+	/**
+	 * Write a raw response for a request and stop further processing of the request.
+	 *
+	 * @param message request message
+	 * @param responseCode HTTP response code
+	 * @param contentType content type
+	 * @param body response body
+	 * @throws IOException if the response could not be written
+	 */
+	public static void write(Message message, int responseCode, String contentType, ByteBuffer body) throws IOException {
+		Exchange exchange = message.getExchange();
+
+		Message out = new MessageImpl();
+		out.setExchange(exchange);
+		out.put(Message.RESPONSE_CODE, responseCode);
+		out.put(Message.CONTENT_TYPE, contentType);
+		exchange.setOutMessage(out);
+
+		Conduit conduit = exchange.getDestination().getBackChannel(message);
+		conduit.prepare(out);
+
+		OutputStream os = out.getContent(OutputStream.class);
+		if(body.hasArray()) {
+			os.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+		} else {
+			byte[] buffer = new byte[Math.min(body.remaining(), 8192)];
+			ByteBuffer source = body.duplicate();
+			while(source.hasRemaining()) {
+				int length = Math.min(buffer.length, source.remaining());
+				source.get(buffer, 0, length);
+				os.write(buffer, 0, length);
+			}
+		}
+		conduit.close(out);
+
+		message.getInterceptorChain().abort();
+	}
+
+	/**
+	 * Hash the SOAP body of a request in canonical form; element and attribute names are namespace-qualified
+	 * (so prefixes do not matter), attributes are sorted, and whitespace around text is ignored. Headers are not
+	 * included.
+	 *
+	 * @param request request envelope
+	 * @return request key
+	 * @throws XMLStreamException if the request is not well-formed
+	 */
+	public static RequestKey canonicalKey(byte[] request) throws XMLStreamException {
+		return canonicalKey(request, true);
+	}
+
+	/**
+	 * Get the envelope namespace and the (qualified) name of the first SOAP body element, and optionally hash
+	 * the SOAP body, in a single pass. Without the hash, the rest of the body is not parsed.
+	 *
+	 * @param request request envelope
+	 * @param hash true to hash the body, see {@linkplain #canonicalKey(byte[])}
+	 * @return request key, with a null operation if the body is empty, and no digest unless hashed
+	 * @throws XMLStreamException if the request is not well-formed
+	 */
+	public static RequestKey canonicalKey(byte[] request, boolean hash) throws XMLStreamException {
+		MessageDigest digest = null;
+		if(hash) {
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		XMLStreamReader reader = StaxUtils.createXMLStreamReader(new ByteArrayInputStream(request));
+		try {
+			int depth = 0;
+			boolean body = false;
+			String namespace = null;
+			String operation = null;
+			while(reader.hasNext()) {
+				int event = reader.next();
+				if(event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					if(!body) {
+						if(depth == 1 && isEnvelopeNamespace(reader.getNamespaceURI()) && reader.getLocalName().equals("Envelope")) {
+							namespace = reader.getNamespaceURI();
+						} else if(depth == 2 && isEnvelopeNamespace(reader.getNamespaceURI()) && reader.getLocalName().equals("Body")) {
+							body = true;
+						}
+						continue;
+					}
+					String name = "{" + namespace(reader.getNamespaceURI()) + "}" + reader.getLocalName();
+					if(operation == null) {
+						operation = name;
+						if(digest == null) {
+							break;
+						}
+					}
+					update(digest, "<" + name);
+
+					Integer[] indexes = new Integer[reader.getAttributeCount()];
+					for(int i = 0; i < indexes.length; i++) {
+						indexes[i] = i;
+					}
+					Arrays.sort(indexes, Comparator.comparing((Integer i) -> namespace(reader.getAttributeNamespace(i))).thenComparing(i -> reader.getAttributeLocalName(i)));
+					for (Integer i : indexes) {
+						update(digest, " {" + namespace(reader.getAttributeNamespace(i)) + "}" + reader.getAttributeLocalName(i) + "=" + reader.getAttributeValue(i));
+					}
+					update(digest, ">");
+				} else if(event == XMLStreamConstants.END_ELEMENT) {
+					depth--;
+					if(body) {
+						if(depth == 1) {
+							break;
+						}
+						update(digest, "</>");
+					}
+				} else if(body && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)) {
+					String text = reader.getText().trim();
+					if(!text.isEmpty()) {
+						update(digest, text);
+					}
+				}
+			}
+			return new RequestKey(namespace, operation, digest != null ? digest.digest() : null);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Get the namespace of the envelope element, which identifies the SOAP version.
+	 *
+	 * @param message message envelope
+	 * @return the namespace, or null if the root element is not a SOAP envelope
+	 * @throws XMLStreamException if the message is not well-formed
+	 */
+	public static String envelopeNamespace(byte[] message) throws XMLStreamException {
+		XMLStreamReader reader = StaxUtils.createXMLStreamReader(new ByteArrayInputStream(message));
+		try {
+			while(reader.hasNext()) {
+				if(reader.next() == XMLStreamConstants.START_ELEMENT) {
+					String namespace = reader.getNamespaceURI();
+					if(reader.getLocalName().equals("Envelope") && isEnvelopeNamespace(namespace)) {
+						return namespace;
+					}
+					return null;
+				}
+			}
+			return null;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Validate the SOAP body content of a message.
+	 *
+	 * @param schema schema
+	 * @param message message envelope
+	 * @throws XMLStreamException if the message is not well-formed
+	 * @throws SAXException if the body content is not valid
+	 * @throws IOException if the message could not be read
+	 */
+	public static void validate(Schema schema, byte[] message) throws XMLStreamException, SAXException, IOException {
+		XMLStreamReader reader = StaxUtils.createXMLStreamReader(new ByteArrayInputStream(message));
+		try {
+			if(toPayload(reader)) {
+				schema.newValidator().validate(new StAXSource(reader));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Move the reader to the first SOAP body element.
+	 *
+	 * @param reader reader at the start of an envelope
+	 * @return true if the reader is positioned at the first body element, false if there is none
+	 * @throws XMLStreamException if the message is not well-formed
+	 */
+	private static boolean toPayload(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 0;
+		boolean body = false;
+		while(reader.hasNext()) {
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				if(body) {
+					return true;
+				}
+				if(depth == 2 && isEnvelopeNamespace(reader.getNamespaceURI()) && reader.getLocalName().equals("Body")) {
+					body = true;
+				}
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				if(body) {
+					return false;
+				}
+				depth--;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isEnvelopeNamespace(String namespace) {
+		return SOAP_11_ENVELOPE.equals(namespace) || SOAP_12_ENVELOPE.equals(namespace);
+	}
+
+	private static String namespace(String namespace) {
+		return namespace != null ? namespace : "";
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte)0);
+	}
+}
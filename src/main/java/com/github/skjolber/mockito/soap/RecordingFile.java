@@ -0,0 +1,278 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Append-only store of request-response pairs. The file starts with a magic number, followed by records of
+ * <br><br>
+ * <code>long hash, int responseCode, short operationLength, operation, short contentTypeLength, contentType,
+ * int requestLength, request, int responseLength, response</code>
+ * <br><br>
+ * in big-endian byte order. For lookup, the file is memory-mapped and indexed by hash; if the same request was recorded
+ * more than once, the last record wins.
+ * <br><br>
+ * Appends hold an exclusive file lock, so that several JVMs (i.e. Surefire forks) can record to the same file, while
+ * mapping the file holds a shared lock.
+ */
+class RecordingFile {
+
+	static final int MAGIC = 0x4d534f31; // MSO1
+
+	private static final long EMPTY = 0L;
+
+	/**
+	 * A recorded response, backed by the mapped file.
+	 */
+	static class Entry {
+
+		private final String operation;
+		private final int responseCode;
+		private final String contentType;
+		private final ByteBuffer response;
+
+		Entry(String operation, int responseCode, String contentType, ByteBuffer response) {
+			this.operation = operation;
+			this.responseCode = responseCode;
+			this.contentType = contentType;
+			this.response = response;
+		}
+
+		public String getOperation() {
+			return operation;
+		}
+
+		public int getResponseCode() {
+			return responseCode;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public ByteBuffer getResponse() {
+			return response.duplicate();
+		}
+	}
+
+	/**
+	 * Append a record, creating the file if necessary.
+	 *
+	 * @param file target file
+	 * @param key request key
+	 * @param responseCode response code
+	 * @param contentType response content type
+	 * @param request request body
+	 * @param response response body
+	 * @throws IOException if the record could not be written
+	 */
+	static void append(Path file, RawMessages.RequestKey key, int responseCode, String contentType, byte[] request, byte[] response) throws IOException {
+		byte[] operation = key.getOperation().getBytes(StandardCharsets.UTF_8);
+		byte[] type = contentType != null ? contentType.getBytes(StandardCharsets.UTF_8) : new byte[0];
+
+		ByteBuffer buffer = ByteBuffer.allocate(4 + 8 + 4 + 2 + operation.length + 2 + type.length + 4 + request.length + 4 + response.length);
+
+		// file locks are held per process, so threads within this JVM must also be serialized
+		synchronized (RecordingFile.class) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				FileLock lock = channel.lock();
+				try {
+					long size = channel.size();
+					if(size == 0) {
+						buffer.putInt(MAGIC);
+					}
+					buffer.putLong(key.getHash());
+					buffer.putInt(responseCode);
+					buffer.putShort((short)operation.length).put(operation);
+					buffer.putShort((short)type.length).put(type);
+					buffer.putInt(request.length).put(request);
+					buffer.putInt(response.length).put(response);
+					buffer.flip();
+
+					long position = size;
+					while(buffer.hasRemaining()) {
+						position += channel.write(buffer, position);
+					}
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	private final MappedByteBuffer buffer;
+
+	// open addressing, hash -> record offset
+	private final long[] hashes;
+	private final int[] offsets;
+	private final int mask;
+	private final int size;
+
+	/**
+	 * Map and index an existing file.
+	 *
+	 * @param file source file
+	 * @throws IOException if the file could not be read or is not a recording
+	 */
+	RecordingFile(Path file) throws IOException {
+		synchronized (RecordingFile.class) {
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+				try {
+					if(channel.size() > Integer.MAX_VALUE) {
+						throw new IOException("Recording " + file + " exceeds " + Integer.MAX_VALUE + " bytes");
+					}
+					// the mapping stays valid after the channel is closed
+					this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				} finally {
+					lock.release();
+				}
+			}
+		}
+		if(buffer.limit() < 4 || buffer.getInt(0) != MAGIC) {
+			throw new IOException("File " + file + " is not a recording");
+		}
+
+		int count = 0;
+		int position = 4;
+		try {
+			while(position < buffer.limit()) {
+				position = next(position);
+				count++;
+			}
+		} catch(IndexOutOfBoundsException e) {
+			throw new IOException("Recording " + file + " is truncated", e);
+		}
+		if(position != buffer.limit()) {
+			throw new IOException("Recording " + file + " is truncated");
+		}
+
+		int capacity = Integer.highestOneBit(Math.max(1, count * 2 - 1)) << 1;
+		this.hashes = new long[capacity];
+		this.offsets = new int[capacity];
+		this.mask = capacity - 1;
+
+		int unique = 0;
+		position = 4;
+		while(position < buffer.limit()) {
+			long hash = normalize(buffer.getLong(position));
+			int slot = slot(hash);
+			if(hashes[slot] == EMPTY) {
+				hashes[slot] = hash;
+				unique++;
+			}
+			offsets[slot] = position;
+
+			position = next(position);
+		}
+		this.size = unique;
+	}
+
+	private int next(int position) {
+		position += 8 + 4;
+		position += 2 + shortLength(position);
+		position += 2 + shortLength(position);
+		position += 4 + buffer.getInt(position);
+		position += 4 + buffer.getInt(position);
+		return position;
+	}
+
+	private int shortLength(int position) {
+		return buffer.getShort(position) & 0xFFFF;
+	}
+
+	private static long normalize(long hash) {
+		// zero marks empty slots
+		return hash == EMPTY ? 1L : hash;
+	}
+
+	private int slot(long hash) {
+		int slot = (int)(hash ^ (hash >>> 32)) & mask;
+		while(hashes[slot] != EMPTY && hashes[slot] != hash) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Get the number of distinct recorded requests.
+	 *
+	 * @return number of requests
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Look up the response for a request. The recorded request is compared with the given request, so that a collision
+	 * of the 64-bit hash is a miss rather than the wrong response.
+	 *
+	 * @param key request key
+	 * @param request request envelope
+	 * @return the recorded response, or null if not found
+	 */
+	public Entry get(RawMessages.RequestKey key, byte[] request) {
+		long hash = normalize(key.getHash());
+		int slot = slot(hash);
+		if(hashes[slot] == EMPTY) {
+			return null;
+		}
+		int position = offsets[slot] + 8;
+
+		int responseCode = buffer.getInt(position);
+		position += 4;
+
+		String operation = readString(position);
+		position += 2 + shortLength(position);
+		if(!operation.equals(key.getOperation())) {
+			return null;
+		}
+
+		String contentType = readString(position);
+		position += 2 + shortLength(position);
+
+		int requestLength = buffer.getInt(position);
+		position += 4;
+		if(!matches(key, request, buffer.slice(position, requestLength))) {
+			return null;
+		}
+		position += requestLength;
+
+		int length = buffer.getInt(position);
+		position += 4;
+
+		ByteBuffer response = buffer.duplicate();
+		response.position(position);
+		response.limit(position + length);
+
+		return new Entry(operation, responseCode, contentType.isEmpty() ? null : contentType, response.slice());
+	}
+
+	private static boolean matches(RawMessages.RequestKey key, byte[] request, ByteBuffer recorded) {
+		if(recorded.equals(ByteBuffer.wrap(request))) {
+			return true;
+		}
+		// same canonical form, but i.e. other namespace prefixes or whitespace
+		byte[] bytes = new byte[recorded.remaining()];
+		recorded.get(bytes);
+		try {
+			return key.matches(RawMessages.canonicalKey(bytes));
+		} catch (XMLStreamException e) {
+			return false;
+		}
+	}
+
+	private String readString(int position) {
+		byte[] bytes = new byte[shortLength(position)];
+		buffer.get(position + 2, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,225 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.annotations.SchemaValidation.SchemaValidationType;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.resource.URIResolver;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.apache.cxf.ws.addressing.EndpointReferenceUtils;
+import org.xml.sax.SAXException;
+
+/**
+ * JVM-wide cache of compiled XML Schemas used for schema validation, so that endpoints validating against the
+ * same WSDL / XML Schema files only compile them once.
+ * <br><br>
+ * Schemas are keyed by port class, service name and the resolved schema locations; locations are resolved once.
+ * Changes to the schema files (including imported or included files) within the same JVM are therefore not detected;
+ * call {@linkplain #clear()} to recompile.
+ */
+class SchemaCache {
+
+	private static final SchemaCache INSTANCE = new SchemaCache();
+
+	public static SchemaCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Cache key.
+	 */
+	static class Key {
+
+		private final Class<?> port;
+		private final QName service;
+		private final List<String> locations;
+
+		Key(Class<?> port, QName service, List<String> locations) {
+			this.port = port;
+			this.service = service;
+			this.locations = locations;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = port.hashCode();
+			result = 31 * result + (service != null ? service.hashCode() : 0);
+			result = 31 * result + locations.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)obj;
+
+			return port == other.port && Objects.equals(service, other.service) && Objects.equals(locations, other.locations);
+		}
+	}
+
+	// schemas compiled by CXF from service models
+	private final Map<Key, Schema> schemas = new ConcurrentHashMap<>();
+	// schemas compiled directly from schema locations; kept apart as they are built from different sources
+	private final Map<Key, Schema> locationSchemas = new ConcurrentHashMap<>();
+	// location -> resolved location
+	private final Map<String, String> resolved = new ConcurrentHashMap<>();
+
+	/**
+	 * Set the compiled schema for validation of the given server, compiling it if not already cached.
+	 *
+	 * @param server server with schema validation
+	 * @param bus bus of the server
+	 * @param port service class
+	 * @param wsdlLocation wsdl location, or null
+	 * @param schemaLocations schema locations, or null
+	 */
+	public void apply(Server server, Bus bus, Class<?> port, String wsdlLocation, List<String> schemaLocations) {
+		if(!isSchemaValidationEnabled(server.getEndpoint().get(Message.SCHEMA_VALIDATION_ENABLED))) {
+			return;
+		}
+		List<String> locations = new ArrayList<>();
+		if(wsdlLocation != null) {
+			locations.add(wsdlLocation);
+		}
+		if(schemaLocations != null) {
+			locations.addAll(schemaLocations);
+		}
+		if(locations.isEmpty()) {
+			return;
+		}
+
+		List<String> resolvedLocations = resolve(locations);
+		if(resolvedLocations == null) {
+			// let CXF resolve (and report on) the locations
+			return;
+		}
+
+		for(ServiceInfo serviceInfo : server.getEndpoint().getService().getServiceInfos()) {
+			if(serviceInfo.getProperty(Schema.class.getName()) != null) {
+				// reused service model
+				continue;
+			}
+			Schema schema = schemas.computeIfAbsent(new Key(port, serviceInfo.getName(), resolvedLocations), k -> EndpointReferenceUtils.getSchema(serviceInfo, bus));
+			if(schema != null) {
+				serviceInfo.setProperty(Schema.class.getName(), schema);
+			}
+		}
+	}
+
+	private static boolean isSchemaValidationEnabled(Object value) {
+		if(value == null) {
+			return false;
+		}
+		if(value instanceof Boolean) {
+			return (Boolean)value;
+		}
+		if(value instanceof SchemaValidationType) {
+			return value != SchemaValidationType.NONE;
+		}
+		String string = value.toString();
+		return !string.equalsIgnoreCase(Boolean.FALSE.toString()) && !string.equalsIgnoreCase(SchemaValidationType.NONE.name());
+	}
+
+	/**
+	 * Get the compiled schema for the given schema locations, compiling it if not already cached.
+	 *
+	 * @param port service class
+	 * @param schemaLocations schema locations
+	 * @return compiled schema
+	 */
+	public Schema getSchema(Class<?> port, List<String> schemaLocations) {
+		List<String> resolvedLocations = resolve(schemaLocations);
+		if(resolvedLocations == null) {
+			throw new IllegalArgumentException("Unable to resolve schema locations " + schemaLocations);
+		}
+		return locationSchemas.computeIfAbsent(new Key(port, null, resolvedLocations), k -> compile(schemaLocations));
+	}
+
+	private static Schema compile(List<String> schemaLocations) {
+		List<InputStream> inputs = new ArrayList<>();
+		try {
+			Source[] sources = new Source[schemaLocations.size()];
+			for(int i = 0; i < sources.length; i++) {
+				URL url = new URIResolver(schemaLocations.get(i)).getURL();
+				InputStream in = url.openStream();
+				inputs.add(in);
+				sources[i] = new StreamSource(in, url.toExternalForm());
+			}
+			return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(sources);
+		} catch(IOException | SAXException e) {
+			throw new IllegalArgumentException("Unable to compile schemas " + schemaLocations, e);
+		} finally {
+			for(InputStream in : inputs) {
+				try {
+					in.close();
+				} catch(IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * Resolve the given locations.
+	 *
+	 * @param locations schema locations
+	 * @return resolved locations, or null if a location could not be resolved
+	 */
+	private List<String> resolve(List<String> locations) {
+		List<String> result = new ArrayList<>(locations.size());
+		for(String location : locations) {
+			String url = resolved.get(location);
+			if(url == null) {
+				url = resolve(location);
+				if(url == null) {
+					return null;
+				}
+				resolved.put(location, url);
+			}
+			result.add(url);
+		}
+		return result;
+	}
+
+	private static String resolve(String location) {
+		try (URIResolver resolver = new URIResolver(location)) {
+			if(!resolver.isResolved()) {
+				return null;
+			}
+			URL url = resolver.getURL();
+			return url != null ? url.toExternalForm() : location;
+		} catch(IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Drop all cached schemas.
+	 */
+	public void clear() {
+		schemas.clear();
+		locationSchemas.clear();
+		resolved.clear();
+	}
+}
@@ -0,0 +1,198 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.OutgoingChainInterceptor;
+import org.apache.cxf.jaxws.support.JaxWsServiceFactoryBean;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.Service;
+
+/**
+ * JVM-wide cache of built service models (including data bindings), so that creating a new endpoint for
+ * an already seen contract only needs to bind a new target and address.
+ * <br><br>
+ * A service model carries the invoker of the endpoint it was created for, so a model is only used by
+ * one live endpoint at a time; models are handed out when idle and returned when their endpoint is destroyed.
+ * <br><br>
+ * The cache is bounded both in the number of contracts and in the number of idle models per contract; models
+ * released beyond these limits are simply dropped.
+ */
+class ServiceModelCache {
+
+	private static final String KEY = ServiceModelCache.class.getName() + ".key";
+
+	private static final ServiceModelCache INSTANCE = new ServiceModelCache();
+
+	/** Maximum number of contracts */
+	static final int MAX_CONTRACTS = 256;
+	/** Maximum number of idle models per contract */
+	static final int MAX_IDLE = 16;
+
+	/** Prefix of the data binding properties, i.e. jaxb.additionalContextClasses */
+	private static final String JAXB_PREFIX = "jaxb.";
+
+	public static ServiceModelCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Cache key; everything which goes into building the service model. Models are not shared between
+	 * owner types, as rules and extensions publish endpoints slightly differently. Of the endpoint properties,
+	 * only those which shape the model are included; the address and per-endpoint instances
+	 * (like {@linkplain SoapInvocations} or {@linkplain SoapRoutes}) are not.
+	 */
+	static class Key {
+
+		private final Class<?> owner;
+		private final Class<?> port;
+		private final String wsdlLocation;
+		private final List<String> schemaLocations;
+		private final Map<String, Object> properties;
+
+		Key(Class<?> owner, Class<?> port, String wsdlLocation, List<String> schemaLocations, Map<String, Object> properties) {
+			this.owner = owner;
+			this.port = port;
+			this.wsdlLocation = wsdlLocation;
+			this.schemaLocations = schemaLocations != null ? new ArrayList<>(schemaLocations) : null;
+			this.properties = modelProperties(properties);
+		}
+
+		private static Map<String, Object> modelProperties(Map<String, Object> properties) {
+			Map<String, Object> result = new TreeMap<>();
+			if(properties != null) {
+				for (Map.Entry<String, Object> entry : properties.entrySet()) {
+					String name = entry.getKey();
+					if(name.equals(Message.MTOM_ENABLED) || name.equals(Message.SCHEMA_VALIDATION_ENABLED) || name.startsWith(JAXB_PREFIX)) {
+						result.put(name, entry.getValue());
+					}
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = owner.hashCode();
+			result = 31 * result + port.hashCode();
+			result = 31 * result + (wsdlLocation != null ? wsdlLocation.hashCode() : 0);
+			result = 31 * result + (schemaLocations != null ? schemaLocations.hashCode() : 0);
+			result = 31 * result + properties.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)obj;
+
+			return owner == other.owner
+					&& port == other.port
+					&& Objects.equals(wsdlLocation, other.wsdlLocation)
+					&& Objects.equals(schemaLocations, other.schemaLocations)
+					&& properties.equals(other.properties);
+		}
+	}
+
+	/**
+	 * Service factory which reuses an idle service model if available, otherwise builds (and tags) a new one.
+	 */
+	private static class CachingJaxWsServiceFactoryBean extends JaxWsServiceFactoryBean {
+
+		private final Key key;
+		private final Service cached;
+
+		CachingJaxWsServiceFactoryBean(Key key, Service cached) {
+			this.key = key;
+			this.cached = cached;
+		}
+
+		@Override
+		public synchronized Service create() {
+			if(cached != null) {
+				initializeServiceConfigurations();
+				setService(cached);
+				return cached;
+			}
+			Service service = super.create();
+			service.put(KEY, key);
+			return service;
+		}
+	}
+
+	private final Map<Key, Deque<Service>> services = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a service factory for the given contract.
+	 *
+	 * @param owner type of rule or extension which publishes the endpoint
+	 * @param port service class
+	 * @param wsdlLocation wsdl location, or null
+	 * @param schemaLocations schema locations, or null
+	 * @param properties endpoint properties, or null
+	 * @return service factory, backed by a cached service model if one is idle
+	 */
+	public JaxWsServiceFactoryBean newServiceFactory(Class<?> owner, Class<?> port, String wsdlLocation, List<String> schemaLocations, Map<String, Object> properties) {
+		Key key = new Key(owner, port, wsdlLocation, schemaLocations, properties);
+
+		Deque<Service> queue = services.get(key);
+		Service service = queue != null ? queue.pollFirst() : null;
+
+		return new CachingJaxWsServiceFactoryBean(key, service);
+	}
+
+	/**
+	 * Return the service model of a destroyed server to the cache.
+	 *
+	 * @param server destroyed server
+	 */
+	public void release(Server server) {
+		Service service = server.getEndpoint().getService();
+
+		Key key = (Key)service.get(KEY);
+		if(key != null) {
+			// the next server gets its own endpoint and invoker
+			service.getEndpoints().clear();
+			service.setInvoker(null);
+
+			// the outgoing chain cache only compares interceptor list sizes and modification counts,
+			// so it would hand the out interceptors of the destroyed endpoint to the next one
+			List<Interceptor<? extends Message>> interceptors = service.getInInterceptors();
+			for(int i = 0; i < interceptors.size(); i++) {
+				if(interceptors.get(i) instanceof OutgoingChainInterceptor) {
+					interceptors.set(i, new OutgoingChainInterceptor());
+				}
+			}
+
+			Deque<Service> queue = services.get(key);
+			if(queue == null) {
+				if(services.size() >= MAX_CONTRACTS) {
+					return;
+				}
+				queue = services.computeIfAbsent(key, k -> new LinkedBlockingDeque<>(MAX_IDLE));
+			}
+			// most recently used first; drops the model if the queue is full
+			queue.offerFirst(service);
+		}
+	}
+
+	/**
+	 * Drop all cached service models.
+	 */
+	public void clear() {
+		services.clear();
+	}
+}
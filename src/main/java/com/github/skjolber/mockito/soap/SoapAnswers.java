@@ -0,0 +1,95 @@
+package com.github.skjolber.mockito.soap;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Delayed and asynchronous Mockito answers for slow services.
+ * <br><br>
+ * For HTTP endpoints the request is suspended until the answer completes, so no server thread is held while waiting,
+ * and a small, fixed number of threads can serve a large number of slow requests. Elsewhere, i.e. when calling the mock
+ * directly, the calling thread waits.
+ * <pre>
+ * when(serviceMock.getAccounts(any(GetAccountsRequest.class))).thenAnswer(delayed(Duration.ofSeconds(5), i -&gt; response));
+ * </pre>
+ */
+public class SoapAnswers {
+
+	private SoapAnswers() {
+	}
+
+	/**
+	 * Answer which returns a value after a delay.
+	 *
+	 * @param value value to return
+	 * @param delay delay
+	 * @return answer
+	 */
+	public static Answer<Object> returnsDelayed(Object value, Duration delay) {
+		return delayed(delay, invocation -> value);
+	}
+
+	/**
+	 * Answer which is delayed. The delegate answer is invoked immediately, but its result (or exception) is
+	 * not returned before the delay has passed.
+	 *
+	 * @param delay delay
+	 * @param answer delegate answer
+	 * @return answer
+	 */
+	public static Answer<Object> delayed(Duration delay, Answer<?> answer) {
+		return delayed(Latency.fixed(delay), answer);
+	}
+
+	/**
+	 * Answer which is delayed according to a latency distribution. The delegate answer is invoked immediately, but its result
+	 * (or exception) is not returned before the delay has passed.
+	 *
+	 * @param latency latency
+	 * @param answer delegate answer
+	 * @return answer
+	 */
+	public static Answer<Object> delayed(Latency latency, Answer<?> answer) {
+		SoapServiceProxy.enableDeferral();
+		return invocation -> {
+			CompletableFuture<Object> future = new CompletableFuture<>();
+			try {
+				Object value = answer.answer(invocation);
+
+				DelayScheduler.getInstance().schedule(() -> future.complete(value), latency.nextDelay());
+			} catch (Throwable e) {
+				DelayScheduler.getInstance().schedule(() -> future.completeExceptionally(e), latency.nextDelay());
+			}
+			return complete(future);
+		};
+	}
+
+	/**
+	 * Answer which completes asynchronously.
+	 *
+	 * @param answer function returning a completion stage for the result
+	 * @return answer
+	 */
+	public static Answer<Object> async(Function<InvocationOnMock, CompletionStage<?>> answer) {
+		SoapServiceProxy.enableDeferral();
+		return invocation -> complete(answer.apply(invocation));
+	}
+
+	private static Object complete(CompletionStage<?> stage) throws Throwable {
+		if(SoapServiceProxy.defer(stage)) {
+			// result is returned when the request resumes
+			return null;
+		}
+		try {
+			return stage.toCompletableFuture().get();
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package com.github.skjolber.mockito.soap;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.validation.Schema;
+
+import org.apache.cxf.binding.soap.SoapFault;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import jakarta.jws.WebParam;
+import jakarta.jws.WebResult;
+import jakarta.jws.soap.SOAPBinding;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.ws.Holder;
+import jakarta.xml.ws.WebFault;
+import jakarta.xml.ws.WebServiceException;
+
+/**
+ * Client which calls a mock (or other service implementation) directly, within the JVM, without
+ * SOAP serialization or transport. Arguments and results are deep-copied, so that the caller and the mock never share
+ * object graphs. Optionally, arguments and results are validated against XML Schemas; validation only applies to root
+ * elements and BARE-style parameters and results, so wrapped-style arguments are not validated.
+ * <br><br>
+ * SOAP faults thrown by the mock are mapped to the declared exceptions of the service, if the fault detail
+ * matches, otherwise to a {@linkplain WebServiceException}.
+ */
+public class SoapDirectClient implements InvocationHandler {
+
+	/**
+	 * Create a client for the given target, without schema validation.
+	 *
+	 * @param <T> service type
+	 * @param target service implementation, typically a mock
+	 * @param port service class
+	 * @return client which calls the target directly
+	 */
+	public static <T> T newInstance(T target, Class<T> port) {
+		return newInstance(target, port, null);
+	}
+
+	/**
+	 * Create a client for the given target.
+	 *
+	 * @param <T> service type
+	 * @param target service implementation, typically a mock
+	 * @param port service class
+	 * @param schemaLocations schema locations for validation of arguments and results, or null
+	 * @return client which calls the target directly
+	 */
+	public static <T> T newInstance(T target, Class<T> port, List<String> schemaLocations) {
+		if(target == null) {
+			throw new IllegalArgumentException("Expected target");
+		}
+		if(port == null) {
+			throw new IllegalArgumentException("Expected port");
+		}
+		if(schemaLocations != null && schemaLocations.isEmpty()) {
+			throw new IllegalArgumentException("Expected schema locations");
+		}
+		Schema schema = schemaLocations != null ? SchemaCache.getInstance().getSchema(port, schemaLocations) : null;
+
+		SoapDirectClient client = new SoapDirectClient(target, port, schema);
+		return port.cast(Proxy.newProxyInstance(port.getClassLoader(), new Class<?>[] {port}, client));
+	}
+
+	private final Object target;
+	private final Class<?> port;
+	private final Schema schema;
+	private final boolean bare;
+	private final JaxbCopier copier;
+
+	SoapDirectClient(Object target, Class<?> port, Schema schema) {
+		this.target = target;
+		this.port = port;
+		this.schema = schema;
+
+		SOAPBinding binding = port.getAnnotation(SOAPBinding.class);
+		this.bare = binding != null && binding.parameterStyle() == SOAPBinding.ParameterStyle.BARE;
+
+		this.copier = JaxbCopier.getInstance(getTypes(port));
+	}
+
+	private static Set<Class<?>> getTypes(Class<?> port) {
+		Set<Class<?>> types = new LinkedHashSet<>();
+		for(Method method : port.getMethods()) {
+			addType(types, method.getGenericReturnType());
+			for(Type type : method.getGenericParameterTypes()) {
+				addType(types, type);
+			}
+			for(Class<?> exception : method.getExceptionTypes()) {
+				Class<?> faultInfo = getFaultInfo(exception);
+				if(faultInfo != null) {
+					types.add(faultInfo);
+				}
+			}
+		}
+		return types;
+	}
+
+	private static void addType(Set<Class<?>> types, Type type) {
+		if(type instanceof ParameterizedType) {
+			// i.e. holders and lists
+			for(Type argument : ((ParameterizedType)type).getActualTypeArguments()) {
+				addType(types, argument);
+			}
+		} else if(type instanceof Class && type != void.class && !((Class<?>)type).isPrimitive()) {
+			types.add((Class<?>)type);
+		}
+	}
+
+	private static Class<?> getFaultInfo(Class<?> exception) {
+		if(!exception.isAnnotationPresent(WebFault.class)) {
+			return null;
+		}
+		try {
+			return exception.getMethod("getFaultInfo").getReturnType();
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if(method.getDeclaringClass() == Object.class) {
+			switch(method.getName()) {
+			case "equals": return proxy == args[0];
+			case "hashCode": return System.identityHashCode(proxy);
+			default: return SoapDirectClient.class.getSimpleName() + " for " + port.getName();
+			}
+		}
+
+		Object[] copies = null;
+		if(args != null) {
+			Annotation[][] annotations = method.getParameterAnnotations();
+			copies = new Object[args.length];
+			for(int i = 0; i < args.length; i++) {
+				copies[i] = copy(args[i], getName(annotations[i]));
+			}
+		}
+
+		Object result;
+		try {
+			result = method.invoke(target, copies);
+		} catch (InvocationTargetException e) {
+			throw mapException(method, e.getCause());
+		}
+
+		if(args != null) {
+			// out parameters
+			Annotation[][] annotations = method.getParameterAnnotations();
+			for(int i = 0; i < args.length; i++) {
+				if(args[i] instanceof Holder) {
+					// the holder came from the caller with the value type of the parameter, which the copy keeps
+					@SuppressWarnings("unchecked")
+					Holder<Object> holder = (Holder<Object>)args[i];
+					holder.value = copy(((Holder<?>)copies[i]).value, getName(annotations[i]));
+				}
+			}
+		}
+
+		WebResult webResult = method.getAnnotation(WebResult.class);
+		return copy(result, bare && webResult != null ? new QName(webResult.targetNamespace(), webResult.name()) : null);
+	}
+
+	private QName getName(Annotation[] annotations) {
+		if(bare) {
+			for(Annotation annotation : annotations) {
+				if(annotation instanceof WebParam) {
+					WebParam webParam = (WebParam)annotation;
+					return new QName(webParam.targetNamespace(), webParam.name());
+				}
+			}
+		}
+		// parts of a wrapper element are not global elements
+		return null;
+	}
+
+	private Object copy(Object value, QName name) {
+		try {
+			return copier.copy(value, name, schema);
+		} catch (JAXBException e) {
+			String message = e.getLinkedException() != null ? e.getLinkedException().getMessage() : e.getMessage();
+			throw new WebServiceException("Unable to copy " + value.getClass().getName() + ": " + message, e);
+		}
+	}
+
+	private Throwable mapException(Method method, Throwable e) {
+		if(e instanceof SoapFault) {
+			SoapFault fault = (SoapFault)e;
+
+			Element detail = fault.getDetail();
+			Element child = detail != null ? getFirstElement(detail) : null;
+			if(child != null) {
+				for(Class<?> exception : method.getExceptionTypes()) {
+					Throwable mapped = mapFault(exception, fault, child);
+					if(mapped != null) {
+						return mapped;
+					}
+				}
+			}
+			return new WebServiceException(fault.getMessage(), fault);
+		}
+		for(Class<?> exception : method.getExceptionTypes()) {
+			if(exception.isInstance(e)) {
+				Throwable copy = copyException(exception, e);
+				return copy != null ? copy : e;
+			}
+		}
+		if(e instanceof WebServiceException) {
+			return e;
+		}
+		return new WebServiceException(e.getMessage(), e);
+	}
+
+	private static Element getFirstElement(Element element) {
+		Node node = element.getFirstChild();
+		while(node != null) {
+			if(node instanceof Element) {
+				return (Element)node;
+			}
+			node = node.getNextSibling();
+		}
+		return null;
+	}
+
+	private Throwable mapFault(Class<?> exception, SoapFault fault, Element child) {
+		WebFault webFault = exception.getAnnotation(WebFault.class);
+		Class<?> faultInfo = getFaultInfo(exception);
+		if(webFault == null || faultInfo == null) {
+			return null;
+		}
+		if(!webFault.name().equals(child.getLocalName()) || !webFault.targetNamespace().equals(nonNull(child.getNamespaceURI()))) {
+			return null;
+		}
+		try {
+			Object info = copier.unmarshal(child, faultInfo);
+
+			Constructor<?> constructor = exception.getConstructor(String.class, faultInfo);
+			return (Throwable)constructor.newInstance(fault.getMessage(), info);
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private Throwable copyException(Class<?> exception, Throwable e) {
+		Class<?> faultInfo = getFaultInfo(exception);
+		if(faultInfo == null) {
+			return null;
+		}
+		try {
+			Object info = exception.getMethod("getFaultInfo").invoke(e);
+
+			Constructor<?> constructor = exception.getConstructor(String.class, faultInfo);
+			return (Throwable)constructor.newInstance(e.getMessage(), copier.copy(info, null, null));
+		} catch (Exception e1) {
+			return null;
+		}
+	}
+
+	private static String nonNull(String value) {
+		return value != null ? value : "";
+	}
+}
@@ -0,0 +1,184 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.interceptor.InterceptorProvider;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+/**
+ * Per-address metrics, recorded invocations and routing tables for the endpoints of a rule or extension, plus the
+ * wiring of the optional endpoint features, so that the rules and extensions share a single implementation.
+ */
+class SoapEndpointRegistry {
+
+	private final Map<String, SoapMetrics> metrics = new ConcurrentHashMap<>();
+	private final Map<String, SoapInvocations> invocations = new ConcurrentHashMap<>();
+	private final Map<String, SoapRoutes<?>> routes = new ConcurrentHashMap<>();
+
+	private final String threadPoolName;
+	private volatile boolean virtualThreads;
+	private QueuedThreadPool threadPool;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threadPoolName thread name prefix for the Jetty thread pool
+	 */
+	SoapEndpointRegistry(String threadPoolName) {
+		this.threadPoolName = threadPoolName;
+	}
+
+	/**
+	 * Wrap a target in a routing table and bounded invocation recording, as configured in the endpoint properties.
+	 *
+	 * @param target instance calls are forwarded to
+	 * @param port service class
+	 * @param address address, i.e. http://localhost:1234
+	 * @param properties endpoint properties, or null
+	 * @param <T> the type of the mocked class
+	 * @return the (possibly) wrapped target
+	 */
+	<T> T wrap(T target, Class<T> port, String address, Map<String, Object> properties) {
+		return record(route(target, port, address, properties), port, address, properties);
+	}
+
+	private <T> T route(T target, Class<T> port, String address, Map<String, Object> properties) {
+		if(!SoapRoutes.isEnabled(properties)) {
+			routes.remove(address);
+			return target;
+		}
+		SoapRoutes<T> table = SoapRoutes.getInstance(port, properties);
+		routes.put(address, table);
+		return table.wrap(target);
+	}
+
+	private <T> T record(T target, Class<T> port, String address, Map<String, Object> properties) {
+		if(!SoapInvocations.isEnabled(properties)) {
+			invocations.remove(address);
+			return target;
+		}
+		SoapInvocations recorder = new SoapInvocations(port, SoapInvocations.getCapacity(properties));
+		invocations.put(address, recorder);
+		return recorder.wrap(target, port);
+	}
+
+	/**
+	 * Install the features enabled in the endpoint properties, before the endpoint is created: response cache,
+	 * metrics, flight recorder, recording, raw responses and latency, plus virtual threads for HTTP addresses.
+	 *
+	 * @param bus bus the endpoint is created on
+	 * @param address address, i.e. http://localhost:1234
+	 * @param properties endpoint properties
+	 * @param endpoint endpoint (or factory) interceptors
+	 */
+	void install(Bus bus, String address, Map<String, Object> properties, InterceptorProvider endpoint) {
+		if(SoapResponseCache.isEnabled(properties)) {
+			SoapResponseCache.install(endpoint.getOutInterceptors());
+		}
+
+		if(SoapMetrics.isEnabled(properties) || SoapFlightRecorder.isEnabled(properties)) {
+			SoapMetrics.installCounting(endpoint.getInInterceptors(), endpoint.getOutInterceptors(), endpoint.getOutFaultInterceptors());
+		}
+
+		if(SoapMetrics.isEnabled(properties)) {
+			metrics.computeIfAbsent(address, SoapMetrics::new).install(endpoint.getInInterceptors(), endpoint.getOutInterceptors(), endpoint.getOutFaultInterceptors());
+		}
+
+		if(SoapFlightRecorder.isEnabled(properties)) {
+			new SoapFlightRecorder(address).install(endpoint.getInInterceptors(), endpoint.getOutInterceptors(), endpoint.getOutFaultInterceptors());
+		}
+
+		if(SoapRecording.isEnabled(properties)) {
+			SoapRecording.install(properties, endpoint.getInInterceptors());
+		}
+
+		if(SoapRawResponses.isEnabled(properties)) {
+			SoapRawResponses.install(properties, endpoint.getInInterceptors());
+		}
+
+		if(LatencyInterceptor.isEnabled(properties)) {
+			endpoint.getInInterceptors().add(LatencyInterceptor.newInstance(properties));
+		}
+
+		if(virtualThreads && !address.startsWith("local://")) {
+			JettyThreads.configure(bus, address, getThreadPool());
+		}
+	}
+
+	/**
+	 * Apply the features which require the created endpoint, i.e. cached schemas.
+	 *
+	 * @param server the created server
+	 * @param bus bus the server was created on
+	 * @param port service class
+	 * @param wsdlLocation wsdl location, or null
+	 * @param schemaLocations schema locations, or null
+	 */
+	void created(Server server, Bus bus, Class<?> port, String wsdlLocation, List<String> schemaLocations) {
+		SchemaCache.getInstance().apply(server, bus, port, wsdlLocation, schemaLocations);
+	}
+
+	void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	boolean isVirtualThreads() {
+		return virtualThreads && JettyThreads.isVirtualThreadsSupported();
+	}
+
+	/**
+	 * Get the Jetty thread pool, creating and starting it if necessary.
+	 *
+	 * @return the thread pool
+	 */
+	synchronized QueuedThreadPool getThreadPool() {
+		if(threadPool == null) {
+			try {
+				threadPool = JettyThreads.newThreadPool(threadPoolName, virtualThreads);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return threadPool;
+	}
+
+	SoapMetrics getMetrics(String address) {
+		return metrics.get(address);
+	}
+
+	SoapInvocations getInvocations(String address) {
+		return invocations.get(address);
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> SoapRoutes<T> getRoutes(String address) {
+		return (SoapRoutes<T>)routes.get(address);
+	}
+
+	/**
+	 * Drop recorded invocations and routing tables, i.e. when the endpoints are removed. Metrics are kept until dumped.
+	 */
+	void clear() {
+		invocations.clear();
+		routes.clear();
+	}
+
+	/**
+	 * Write metrics as JSON, if enabled, clear everything and stop the thread pool.
+	 */
+	void destroy() {
+		SoapMetrics.dump(metrics);
+		metrics.clear();
+		clear();
+
+		synchronized (this) {
+			JettyThreads.stop(threadPool);
+			threadPool = null;
+		}
+	}
+}
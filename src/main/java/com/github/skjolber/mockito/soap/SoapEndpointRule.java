@@ -6,25 +6,33 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
 import org.apache.cxf.endpoint.EndpointException;
+import org.apache.cxf.endpoint.Server;
 import org.apache.cxf.endpoint.ServerImpl;
 import org.apache.cxf.jaxws.EndpointImpl;
 import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
-import org.apache.cxf.jaxws.support.JaxWsServiceFactoryBean;
 import org.apache.cxf.service.ServiceImpl;
 import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.transport.ChainInitiationObserver;
 import org.apache.cxf.transport.Destination;
 import org.apache.cxf.transport.DestinationFactory;
 import org.apache.cxf.transport.DestinationFactoryManager;
+import org.apache.cxf.transport.http_jetty.JettyHTTPServerEngine;
+import org.apache.cxf.transport.http_jetty.JettyHTTPServerEngineFactory;
 import org.junit.ClassRule;
 
-import jakarta.xml.ws.spi.Provider;
 import jakarta.xml.ws.Endpoint;
 /**
  * Rule for mocking SOAP services using {@linkplain Endpoint}s. Multiple services can run on the same port.
  * If used as a {@linkplain ClassRule}, the rule can be used to reserve random free ports.
  * Resulting reserved ports are set as system properties to port names provided by the caller.
+ * <br><br>
+ * All reserved ports and endpoints of a rule share a single {@linkplain Bus}, which lives until the rule is destroyed.
+ * <br><br>
+ * Endpoints can also use the in-memory local transport (i.e. <code>local://</code> addresses). These are published on
+ * the thread default bus, so that clients on the same bus can reach them. In local mode, port names are mapped to
+ * logical port numbers (i.e. for addresses like <code>local://localhost:1234/service</code>) without binding any sockets.
  *
  * @author thomas.skjolberg@gmail.com
  */
@@ -45,10 +53,24 @@ public class SoapEndpointRule extends SoapServiceRule {
 		return new SoapEndpointRule(portRangeStart, portRangeEnd, portNames);
 	}
 
+	/**
+	 * Create rule in local mode, with logical ports.
+	 *
+	 * @param portNames port names
+	 * @return new rule
+	 */
+	public static SoapEndpointRule newLocalInstance(String ... portNames) {
+		return new SoapEndpointRule(true, PORT_RANGE_START, PORT_RANGE_END, portNames);
+	}
+
 	private Map<String, EndpointImpl> endpoints = new HashMap<>();
 
 	private PortManager<Destination> portManager;
 
+	private final boolean local;
+
+	private Bus bus;
+
 	public SoapEndpointRule() {
 		this(PORT_RANGE_START, PORT_RANGE_END);
 	}
@@ -58,6 +80,37 @@ public class SoapEndpointRule extends SoapServiceRule {
 	}
 
 	public SoapEndpointRule(int portRangeStart, int portRangeEnd, String ... portNames) {
+		this(false, portRangeStart, portRangeEnd, portNames);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param local if true, map port names to logical ports for the local transport instead of reserving them
+	 * @param portRangeStart the first port number in the range
+	 * @param portRangeEnd the last port number in the range
+	 * @param portNames port names
+	 */
+	public SoapEndpointRule(boolean local, int portRangeStart, int portRangeEnd, String ... portNames) {
+		super("soap-endpoint-rule");
+		this.local = local;
+		if(local) {
+			portManager = new PortManager<Destination>(portRangeStart, portRangeEnd, PortLeases.NONE) {
+				@Override
+				public Destination reserve(int port) {
+					// logical port, nothing to bind
+					return null;
+				}
+
+				@Override
+				public void release(Destination destination) {
+				}
+			};
+			portManager.add(portNames);
+
+			return;
+		}
+
 		portManager = new PortManager<Destination>(portRangeStart, portRangeEnd) {
 			@Override
 			public Destination reserve(int port) throws Exception {
@@ -67,6 +120,14 @@ public class SoapEndpointRule extends SoapServiceRule {
 			@Override
 			public void release(Destination destination) {
 				destination.shutdown();
+				// stop the server so that the port is actually freed
+				JettyHTTPServerEngineFactory.destroyForPort(parsePort(destination.getAddress().getAddress().getValue()));
+			}
+
+			@Override
+			protected boolean isCandidate(int port) {
+				// engines are shared within the JVM, so a port with an engine would not be bound again
+				return super.isCandidate(port) && !isEngineRunning(port);
 			}
 		};
 
@@ -86,7 +147,7 @@ public class SoapEndpointRule extends SoapServiceRule {
 	/**
 	 * Returns all port names and respective port numbers.
 	 *
-	 * @return a map of port name and port value (a valid port number
+	 * @return an unmodifiable map of port name and port value (a valid port number
 	 *         if the port has been reserved, or -1 otherwise)
 	 */
 	public Map<String, Integer> getPorts() {
@@ -102,13 +163,9 @@ public class SoapEndpointRule extends SoapServiceRule {
 	 * @throws EndpointException
 	 */
 	private Destination createDestination(int port) throws IOException, EndpointException {
-		JaxWsServiceFactoryBean jaxWsServiceFactoryBean = new JaxWsServiceFactoryBean();
-
-		JaxWsServerFactoryBean serverFactoryBean = new JaxWsServerFactoryBean(jaxWsServiceFactoryBean);
-		Bus bus = serverFactoryBean.getBus();
+		Bus bus = getBus();
 
 		String address = "http://localhost:" + port;
-		serverFactoryBean.setAddress(address);
 
 		DestinationFactory destinationFactory = bus.getExtension(DestinationFactoryManager.class).getDestinationFactoryForUri(address);
 
@@ -117,13 +174,28 @@ public class SoapEndpointRule extends SoapServiceRule {
 
 		Destination destination = destinationFactory.getDestination(ei, bus);
 
+		JettyHTTPServerEngine engine = bus.getExtension(JettyHTTPServerEngineFactory.class).retrieveJettyHTTPServerEngine(port);
+		engine.setThreadPool(getRegistry().getThreadPool());
+
 		ServiceImpl serviceImpl = new ServiceImpl();
 
 		org.apache.cxf.endpoint.Endpoint endpoint = new org.apache.cxf.endpoint.EndpointImpl(bus, serviceImpl, ei);
-		destination.setMessageObserver(new ChainInitiationObserver(endpoint , bus));
+		try {
+			// binds the port
+			destination.setMessageObserver(new ChainInitiationObserver(endpoint , bus));
+		} catch(RuntimeException e) {
+			// do not leave an engine which failed to start registered for the port
+			JettyHTTPServerEngineFactory.destroyForPort(port);
+			throw e;
+		}
 		return destination;
 	}
 
+	private boolean isEngineRunning(int port) {
+		JettyHTTPServerEngineFactory factory = getBus().getExtension(JettyHTTPServerEngineFactory.class);
+		return factory != null && factory.retrieveJettyHTTPServerEngine(port) != null;
+	}
+
 	@Override
 	public <T> void proxy(T target, Class<T> port, String address, String wsdlLocation, List<String> schemaLocations, Map<String, Object> properties) {
 		assertValidParams(target, port, address);
@@ -132,9 +204,16 @@ public class SoapEndpointRule extends SoapServiceRule {
 			throw new IllegalArgumentException("Endpoint " + address + " already exists");
 		}
 
-		T serviceInterface = SoapServiceProxy.newInstance(target);
+		T serviceInterface = SoapServiceProxy.newInstance(getRegistry().wrap(target, port, address, properties));
+
+		Map<String, Object> endpointProperties = processProperties(properties, wsdlLocation, schemaLocations);
+
+		JaxWsServerFactoryBean serverFactoryBean = new JaxWsServerFactoryBean(ServiceModelCache.getInstance().newServiceFactory(getClass(), port, wsdlLocation, schemaLocations, endpointProperties));
 
-		EndpointImpl endpoint = (EndpointImpl)Provider.provider().createEndpoint(null, serviceInterface);
+		boolean localAddress = isLocal(address);
+
+		// local destinations are only visible to clients on the same bus
+		EndpointImpl endpoint = new EndpointImpl(localAddress ? BusFactory.getThreadDefaultBus() : getBus(), serviceInterface, serverFactoryBean);
 
 		if(wsdlLocation != null) {
 			endpoint.setWsdlLocation(wsdlLocation);
@@ -144,9 +223,11 @@ public class SoapEndpointRule extends SoapServiceRule {
 			endpoint.setSchemaLocations(schemaLocations);
 		}
 
-		endpoint.setProperties(processProperties(properties, wsdlLocation, schemaLocations));
+		endpoint.setProperties(endpointProperties);
+
+		getRegistry().install(endpoint.getBus(), address, endpointProperties, endpoint);
 
-		Destination destination = portManager.getData(parsePort(address));
+		Destination destination = localAddress ? null : portManager.getData(parsePort(address));
 		if(destination != null) {
 			ServerImpl server = endpoint.getServer();
 			server.setDestination(destination);
@@ -154,11 +235,70 @@ public class SoapEndpointRule extends SoapServiceRule {
 
 		endpoint.publish(address);
 
+		getRegistry().created(endpoint.getServer(), endpoint.getBus(), port, wsdlLocation, schemaLocations);
+
 		endpoints.put(address, endpoint);
 	}
 
+	private static boolean isLocal(String address) {
+		return address.startsWith("local://");
+	}
+
+	@Override
+	protected void assertValidAddress(String address) {
+		if (address != null && isLocal(address)) {
+			return;
+		}
+		super.assertValidAddress(address);
+	}
+
+	/**
+	 * Returns whether port names are mapped to logical ports for the local transport.
+	 *
+	 * @return true if in local mode
+	 */
+	public boolean isLocal() {
+		return local;
+	}
+
+	/**
+	 * Handle requests on virtual threads, including the mock invocation. Must be called before ports are reserved,
+	 * i.e. before the rule is applied. Falls back to platform threads if virtual threads are not supported by the JVM.
+	 *
+	 * @return this instance
+	 */
+	public SoapEndpointRule withVirtualThreads() {
+		getRegistry().setVirtualThreads(true);
+		return this;
+	}
+
+	/**
+	 * Check whether requests are handled on virtual threads.
+	 *
+	 * @return true if virtual thread mode is enabled and supported by the JVM
+	 */
+	public boolean isVirtualThreads() {
+		return getRegistry().isVirtualThreads();
+	}
+
+	/**
+	 * Get the bus shared by all ports and endpoints of this rule, creating it if necessary.
+	 *
+	 * @return the bus
+	 */
+	public synchronized Bus getBus() {
+		if(bus == null) {
+			bus = BusFactory.newInstance().createBus();
+		}
+		return bus;
+	}
+
 	@Override
 	protected void before() {
+		if(!local) {
+			getBus();
+		}
+
 		// reserve all ports
 		portManager.start();
 	}
@@ -172,17 +312,33 @@ public class SoapEndpointRule extends SoapServiceRule {
 	 * Stop and remove endpoints, keeping port reservations.
 	 */
 	public void clear() {
-		endpoints.values().forEach(EndpointImpl::stop);
+		endpoints.values().forEach(SoapEndpointRule::stop);
 		endpoints.clear();
+		getRegistry().clear();
+	}
+
+	private static void stop(EndpointImpl endpoint) {
+		// stopping drops the server, and getServer() on a stopped endpoint would publish it again
+		Server server = endpoint.isPublished() ? endpoint.getServer() : null;
+		endpoint.stop();
+		if(server != null) {
+			ServiceModelCache.getInstance().release(server);
+		}
 	}
 
 	public void destroy() {
-		endpoints.values().forEach(endpoint -> {
-			endpoint.stop();
-			endpoint.getBus().shutdown(true);
-		});
+		endpoints.values().forEach(SoapEndpointRule::stop);
 		endpoints.clear();
 		portManager.stop();
+
+		synchronized (this) {
+			if(bus != null) {
+				bus.shutdown(true);
+				bus = null;
+			}
+		}
+
+		getRegistry().destroy();
 	}
 
 	@Override
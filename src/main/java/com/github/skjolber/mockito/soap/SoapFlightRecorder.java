@@ -0,0 +1,378 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cxf.binding.soap.interceptor.SoapOutInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.MessageSenderInterceptor.MessageSenderEndingInterceptor;
+import org.apache.cxf.interceptor.OutgoingChainInterceptor;
+import org.apache.cxf.interceptor.ServiceInvokerInterceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageUtils;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder events for mocked endpoints, so that time spent in the mocks can be told apart from time spent
+ * in the code under test.
+ * <br><br>
+ * Enable by setting the endpoint property {@linkplain #PROPERTY} to true; ignored if the JVM does not support
+ * Flight Recorder. The interceptors check whether each event is enabled before doing anything else, so the overhead is negligible
+ * unless a recording is running.
+ */
+public class SoapFlightRecorder {
+
+	/** Endpoint property: true to emit Flight Recorder events */
+	public static final String PROPERTY = "mockito-soap-cxf.flight-recorder";
+
+	private static final String CATEGORY = "Mockito SOAP";
+
+	@Name("com.github.skjolber.mockito.soap.Request")
+	@Label("SOAP Request")
+	@Description("Mocked SOAP request, from received until the response or fault is sent")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class RequestEvent extends Event {
+
+		@Label("Address")
+		String address;
+
+		@Label("Operation")
+		String operation;
+
+		@Label("Request Size")
+		@DataAmount
+		long requestBytes;
+
+		@Label("Response Size")
+		@DataAmount
+		long responseBytes;
+
+		@Label("Fault")
+		boolean fault;
+	}
+
+	@Name("com.github.skjolber.mockito.soap.Unmarshal")
+	@Label("SOAP Unmarshal")
+	@Description("Reading and unmarshalling of a mocked SOAP request")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class UnmarshalEvent extends Event {
+
+		@Label("Address")
+		String address;
+
+		@Label("Operation")
+		String operation;
+
+		@Label("Request Size")
+		@DataAmount
+		long requestBytes;
+	}
+
+	@Name("com.github.skjolber.mockito.soap.Invocation")
+	@Label("SOAP Mock Invocation")
+	@Description("Invocation of the mock, including delayed and asynchronous answers")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class InvocationEvent extends Event {
+
+		@Label("Address")
+		String address;
+
+		@Label("Operation")
+		String operation;
+	}
+
+	@Name("com.github.skjolber.mockito.soap.Marshal")
+	@Label("SOAP Marshal")
+	@Description("Marshalling and writing of a mocked SOAP response or fault")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class MarshalEvent extends Event {
+
+		@Label("Address")
+		String address;
+
+		@Label("Operation")
+		String operation;
+
+		@Label("Response Size")
+		@DataAmount
+		long responseBytes;
+
+		@Label("Fault")
+		boolean fault;
+	}
+
+	@Name("com.github.skjolber.mockito.soap.Fault")
+	@Label("SOAP Fault")
+	@Description("Fault returned by a mocked SOAP endpoint")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class FaultEvent extends Event {
+
+		@Label("Address")
+		String address;
+
+		@Label("Operation")
+		String operation;
+
+		@Label("Fault Code")
+		String faultCode;
+
+		@Label("Message")
+		String message;
+	}
+
+	private final String address;
+
+	SoapFlightRecorder(String address) {
+		this.address = address;
+	}
+
+	/**
+	 * Check whether events are enabled in the given endpoint properties, and supported by the JVM.
+	 *
+	 * @param properties endpoint properties
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY);
+		return (Boolean.TRUE.equals(value) || "true".equals(value)) && FlightRecorder.isAvailable();
+	}
+
+	/**
+	 * Add the interceptors which emit events.
+	 *
+	 * @param inInterceptors endpoint in interceptors
+	 * @param outInterceptors endpoint out interceptors
+	 * @param outFaultInterceptors endpoint out fault interceptors
+	 */
+	void install(List<Interceptor<? extends Message>> inInterceptors, List<Interceptor<? extends Message>> outInterceptors, List<Interceptor<? extends Message>> outFaultInterceptors) {
+		inInterceptors.add(new ReceiveInterceptor());
+		inInterceptors.add(new UnmarshalledInterceptor());
+		inInterceptors.add(new InvokeInterceptor());
+		inInterceptors.add(new InvokedInterceptor());
+
+		outInterceptors.add(new MarshalInterceptor());
+		outInterceptors.add(new MarshalledInterceptor(false));
+		outInterceptors.add(new SentInterceptor(false));
+
+		outFaultInterceptors.add(new FaultInterceptor());
+		outFaultInterceptors.add(new MarshalInterceptor());
+		outFaultInterceptors.add(new MarshalledInterceptor(true));
+		outFaultInterceptors.add(new SentInterceptor(true));
+	}
+
+	private static String getOperation(Exchange exchange) {
+		BindingOperationInfo operation = exchange.getBindingOperationInfo();
+		return operation != null ? operation.getName().getLocalPart() : SoapMetrics.UNKNOWN_OPERATION;
+	}
+
+	private void endInvocation(Exchange exchange) {
+		InvocationEvent event = exchange.remove(InvocationEvent.class);
+		if(event != null) {
+			event.end();
+			event.address = address;
+			event.operation = getOperation(exchange);
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begins the request and unmarshal events.
+	 */
+	private class ReceiveInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		ReceiveInterceptor() {
+			super(Phase.RECEIVE);
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			RequestEvent event = new RequestEvent();
+			if(!event.isEnabled() || MessageUtils.isRequestor(message)) {
+				return;
+			}
+			Exchange exchange = message.getExchange();
+			event.begin();
+			exchange.put(RequestEvent.class, event);
+
+			UnmarshalEvent unmarshal = new UnmarshalEvent();
+			if(unmarshal.isEnabled()) {
+				unmarshal.begin();
+				exchange.put(UnmarshalEvent.class, unmarshal);
+			}
+		}
+	}
+
+	private class UnmarshalledInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		UnmarshalledInterceptor() {
+			super(Phase.PRE_INVOKE);
+			addBefore(LatencyInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			Exchange exchange = message.getExchange();
+			UnmarshalEvent event = exchange.remove(UnmarshalEvent.class);
+			if(event != null) {
+				event.end();
+				event.address = address;
+				event.operation = getOperation(exchange);
+				event.requestBytes = SoapMetrics.getRequestBytes(exchange);
+				event.commit();
+			}
+		}
+	}
+
+	private class InvokeInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		InvokeInterceptor() {
+			super(Phase.INVOKE);
+			addBefore(ServiceInvokerInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			InvocationEvent event = new InvocationEvent();
+			if(event.isEnabled()) {
+				event.begin();
+				message.getExchange().put(InvocationEvent.class, event);
+			}
+		}
+	}
+
+	private class InvokedInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		InvokedInterceptor() {
+			super(Phase.POST_INVOKE);
+			addBefore(OutgoingChainInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			endInvocation(message.getExchange());
+		}
+	}
+
+	/**
+	 * Ends the invocation event (if any) and emits the fault event.
+	 */
+	private class FaultInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		FaultInterceptor() {
+			super(Phase.SETUP);
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			Exchange exchange = message.getExchange();
+			endInvocation(exchange);
+
+			FaultEvent event = new FaultEvent();
+			if(event.isEnabled()) {
+				event.address = address;
+				event.operation = getOperation(exchange);
+
+				Exception exception = message.getContent(Exception.class);
+				if(exception instanceof Fault) {
+					Fault fault = (Fault)exception;
+					if(fault.getFaultCode() != null) {
+						event.faultCode = fault.getFaultCode().toString();
+					}
+				}
+				if(exception != null) {
+					event.message = exception.getMessage();
+				}
+				event.commit();
+			}
+		}
+	}
+
+	private class MarshalInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		MarshalInterceptor() {
+			super(Phase.WRITE);
+			addBefore(SoapOutInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			MarshalEvent event = new MarshalEvent();
+			if(event.isEnabled()) {
+				event.begin();
+				message.put(MarshalEvent.class, event);
+			}
+		}
+	}
+
+	private class MarshalledInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		private final boolean fault;
+
+		MarshalledInterceptor(boolean fault) {
+			super(Phase.WRITE_ENDING);
+			addAfter(SoapOutInterceptor.SoapOutEndingInterceptor.class.getName());
+			this.fault = fault;
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			MarshalEvent event = message.remove(MarshalEvent.class);
+			if(event != null) {
+				event.end();
+				event.address = address;
+				event.operation = getOperation(message.getExchange());
+				event.responseBytes = SoapMetrics.getResponseBytes(message);
+				event.fault = fault;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Ends the request event.
+	 */
+	private class SentInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		private final boolean fault;
+
+		SentInterceptor(boolean fault) {
+			// before the response is completed, so that it is recorded before the client sees it
+			super(Phase.PREPARE_SEND_ENDING);
+			addBefore(MessageSenderEndingInterceptor.class.getName());
+			this.fault = fault;
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			Exchange exchange = message.getExchange();
+			RequestEvent event = exchange.remove(RequestEvent.class);
+			if(event != null) {
+				event.end();
+				event.address = address;
+				event.operation = getOperation(exchange);
+				event.requestBytes = SoapMetrics.getRequestBytes(exchange);
+				event.responseBytes = SoapMetrics.getResponseBytes(message);
+				event.fault = fault;
+				event.commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,288 @@
+package com.github.skjolber.mockito.soap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded invocation recording for long-running mocks.
+ * <br><br>
+ * Mockito keeps every invocation (and its arguments) of a mock for verification, so a mock serving a long soak test
+ * eventually runs out of memory. With the {@linkplain #PROPERTY} endpoint property set, mocks are created as stub-only
+ * mocks, and invocations are instead recorded as per-operation counters plus a ring buffer of the most recent invocations.
+ * Both are lock-free.
+ * <br><br>
+ * Get the invocations using <code>invocations(address)</code> on the rule or extension.
+ */
+public class SoapInvocations {
+
+	/** Endpoint property: ring buffer capacity (an {@linkplain Integer}), or {@linkplain Boolean#TRUE} for the default capacity */
+	public static final String PROPERTY = "mockito-soap-cxf.invocations";
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * A recorded invocation.
+	 */
+	public static class Invocation {
+
+		private final long sequence;
+		private final long timestamp;
+		private final Method method;
+		private final Object[] arguments;
+
+		Invocation(long sequence, long timestamp, Method method, Object[] arguments) {
+			this.sequence = sequence;
+			this.timestamp = timestamp;
+			this.method = method;
+			this.arguments = arguments;
+		}
+
+		/**
+		 * Get the sequence number; the number of invocations before this one.
+		 *
+		 * @return sequence number
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+
+		/**
+		 * Get the time of invocation.
+		 *
+		 * @return time in milliseconds since the epoch
+		 */
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public Method getMethod() {
+			return method;
+		}
+
+		public String getOperation() {
+			return method.getName();
+		}
+
+		public Object[] getArguments() {
+			return arguments;
+		}
+
+		public <A> A getArgument(Class<A> type) {
+			for (Object argument : arguments) {
+				if(type.isInstance(argument)) {
+					return type.cast(argument);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Check whether bounded recording is configured in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties, or null
+	 * @return true if configured
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		return properties != null && properties.get(PROPERTY) != null && properties.get(PROPERTY) != Boolean.FALSE;
+	}
+
+	static int getCapacity(Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY);
+		if(value == Boolean.TRUE) {
+			return DEFAULT_CAPACITY;
+		}
+		if(!(value instanceof Integer) || (Integer)value < 1) {
+			throw new IllegalArgumentException("Expected positive " + Integer.class.getName() + " or " + Boolean.TRUE + " for property " + PROPERTY + ", got " + value);
+		}
+		return (Integer)value;
+	}
+
+	private final Map<String, LongAdder> counters;
+
+	private final AtomicReferenceArray<Invocation> invocations;
+	private final int mask;
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param port service class
+	 * @param capacity minimum number of recent invocations to keep, rounded up to a power of two
+	 */
+	SoapInvocations(Class<?> port, int capacity) {
+		Map<String, LongAdder> counters = new HashMap<>();
+		for (Method method : port.getMethods()) {
+			counters.put(method.getName(), new LongAdder());
+		}
+		// not modified after construction
+		this.counters = counters;
+
+		int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.invocations = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Wrap a target so that calls are recorded before they are forwarded.
+	 *
+	 * @param target instance calls are forwarded to
+	 * @param port service class
+	 * @param <T> the type of the mocked class
+	 * @return recording proxy
+	 */
+	<T> T wrap(T target, Class<T> port) {
+		InvocationHandler handler = (proxy, method, args) -> {
+			if(method.getDeclaringClass() != Object.class) {
+				record(method, args);
+			}
+			try {
+				return method.invoke(target, args);
+			} catch(InvocationTargetException e) {
+				throw e.getCause();
+			}
+		};
+		return port.cast(Proxy.newProxyInstance(port.getClassLoader(), new Class<?>[]{port}, handler));
+	}
+
+	void record(Method method, Object[] arguments) {
+		LongAdder counter = counters.get(method.getName());
+		if(counter != null) {
+			counter.increment();
+		}
+		long next = sequence.getAndIncrement();
+		invocations.set((int)(next & mask), new Invocation(next, System.currentTimeMillis(), method, arguments != null ? arguments : new Object[0]));
+	}
+
+	/**
+	 * Get the number of invocations of an operation.
+	 *
+	 * @param operation operation (method) name
+	 * @return number of invocations
+	 */
+	public long getCount(String operation) {
+		LongAdder counter = counters.get(operation);
+		if(counter == null) {
+			throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+		return counter.sum();
+	}
+
+	/**
+	 * Get the total number of invocations.
+	 *
+	 * @return number of invocations
+	 */
+	public long getCount() {
+		return sequence.get();
+	}
+
+	/**
+	 * Get the ring buffer capacity.
+	 *
+	 * @return the maximum number of recent invocations kept
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Get the most recent invocations.
+	 *
+	 * @return invocations, oldest first
+	 */
+	public List<Invocation> getInvocations() {
+		return getInvocations(null);
+	}
+
+	/**
+	 * Get the most recent invocations of an operation.
+	 *
+	 * @param operation operation (method) name, or null for all operations
+	 * @return invocations, oldest first
+	 */
+	public List<Invocation> getInvocations(String operation) {
+		long end = sequence.get();
+		long start = Math.max(0, end - invocations.length());
+
+		List<Invocation> result = new ArrayList<>();
+		for(long i = start; i < end; i++) {
+			Invocation invocation = invocations.get((int)(i & mask));
+			// skip slots which were overwritten (or not yet written) while reading
+			if(invocation != null && invocation.sequence == i && (operation == null || operation.equals(invocation.getOperation()))) {
+				result.add(invocation);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Get the most recent invocation of an operation.
+	 *
+	 * @param operation operation (method) name
+	 * @return the invocation, or null if none is kept
+	 */
+	public Invocation getLast(String operation) {
+		List<Invocation> list = getInvocations(operation);
+		return list.isEmpty() ? null : list.get(list.size() - 1);
+	}
+
+	/**
+	 * Get the first argument of the given type of the most recent invocation of an operation.
+	 *
+	 * @param operation operation (method) name
+	 * @param type argument type
+	 * @param <A> argument type
+	 * @return the argument, or null if none
+	 */
+	public <A> A getLastArgument(String operation, Class<A> type) {
+		Invocation invocation = getLast(operation);
+		return invocation != null ? invocation.getArgument(type) : null;
+	}
+
+	/**
+	 * Verify the number of invocations of an operation.
+	 *
+	 * @param operation operation (method) name
+	 * @param times expected number of invocations
+	 * @throws AssertionError if the count does not match
+	 */
+	public void verify(String operation, long times) {
+		long count = getCount(operation);
+		if(count != times) {
+			throw new AssertionError("Expected " + times + " invocation(s) of " + operation + ", but was " + count);
+		}
+	}
+
+	/**
+	 * Verify that an operation was never invoked.
+	 *
+	 * @param operation operation (method) name
+	 * @throws AssertionError if invoked
+	 */
+	public void verifyNever(String operation) {
+		verify(operation, 0);
+	}
+
+	/**
+	 * Verify that no operation was invoked.
+	 *
+	 * @throws AssertionError if any operation was invoked
+	 */
+	public void verifyNoInvocations() {
+		long count = getCount();
+		if(count != 0) {
+			throw new AssertionError("Expected no invocations, but was " + count);
+		}
+	}
+}
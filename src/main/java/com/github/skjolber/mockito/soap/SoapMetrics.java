@@ -0,0 +1,388 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.cxf.interceptor.AttachmentInInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.MessageSenderInterceptor;
+import org.apache.cxf.interceptor.MessageSenderInterceptor.MessageSenderEndingInterceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageUtils;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+/**
+ * Metrics for a mocked endpoint: request and fault counts, latency histograms and payload sizes per operation.
+ * Enable by setting the endpoint property {@linkplain #PROPERTY} to true.
+ * <br><br>
+ * If the system property {@linkplain #DIRECTORY_PROPERTY} is set, the metrics of a rule or extension are written as JSON
+ * to a new file in that directory when the rule or extension ends.
+ */
+public class SoapMetrics {
+
+	/** Endpoint property: true to record metrics */
+	public static final String PROPERTY = "mockito-soap-cxf.metrics";
+
+	/** System property for the directory metrics are written to */
+	public static final String DIRECTORY_PROPERTY = "mockito-soap-cxf.metrics.dir";
+
+	/** Operation name for requests which did not resolve to an operation */
+	public static final String UNKNOWN_OPERATION = "unknown";
+
+	private static final String START = SoapMetrics.class.getName() + ".start";
+
+	private final String address;
+	private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+	SoapMetrics(String address) {
+		this.address = address;
+	}
+
+	public String getAddress() {
+		return address;
+	}
+
+	/**
+	 * Get metrics for an operation.
+	 *
+	 * @param operation operation name, i.e. the local part of the operation QName
+	 * @return metrics, or null if the operation has not been called
+	 */
+	public OperationMetrics getOperation(String operation) {
+		return operations.get(operation);
+	}
+
+	public Collection<OperationMetrics> getOperations() {
+		return operations.values();
+	}
+
+	public long getRequestCount() {
+		long count = 0;
+		for (OperationMetrics metrics : operations.values()) {
+			count += metrics.getRequestCount();
+		}
+		return count;
+	}
+
+	public long getFaultCount() {
+		long count = 0;
+		for (OperationMetrics metrics : operations.values()) {
+			count += metrics.getFaultCount();
+		}
+		return count;
+	}
+
+	/**
+	 * Check whether metrics are enabled in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY);
+		return Boolean.TRUE.equals(value) || "true".equals(value);
+	}
+
+	/**
+	 * Add the interceptors which record metrics.
+	 *
+	 * @param inInterceptors endpoint in interceptors
+	 * @param outInterceptors endpoint out interceptors
+	 * @param outFaultInterceptors endpoint out fault interceptors
+	 */
+	void install(List<Interceptor<? extends Message>> inInterceptors, List<Interceptor<? extends Message>> outInterceptors, List<Interceptor<? extends Message>> outFaultInterceptors) {
+		inInterceptors.add(new ReceiveInterceptor());
+
+		outInterceptors.add(new RecordInterceptor(false));
+
+		outFaultInterceptors.add(new RecordInterceptor(true));
+	}
+
+	/**
+	 * Add the interceptors which count request and response bytes, for metrics and Flight Recorder events.
+	 * Install at most once per endpoint.
+	 *
+	 * @param inInterceptors endpoint in interceptors
+	 * @param outInterceptors endpoint out interceptors
+	 * @param outFaultInterceptors endpoint out fault interceptors
+	 */
+	static void installCounting(List<Interceptor<? extends Message>> inInterceptors, List<Interceptor<? extends Message>> outInterceptors, List<Interceptor<? extends Message>> outFaultInterceptors) {
+		inInterceptors.add(new CountingInInterceptor());
+
+		outInterceptors.add(new CountingOutInterceptor());
+
+		outFaultInterceptors.add(new CountingOutInterceptor());
+	}
+
+	private void record(Message message, boolean fault) {
+		Exchange exchange = message.getExchange();
+		Long start = (Long)exchange.get(START);
+		if(start == null) {
+			return;
+		}
+
+		BindingOperationInfo operation = exchange.getBindingOperationInfo();
+		String name = operation != null ? operation.getName().getLocalPart() : UNKNOWN_OPERATION;
+
+		operations.computeIfAbsent(name, OperationMetrics::new).record(System.nanoTime() - start, getRequestBytes(exchange), getResponseBytes(message), fault);
+	}
+
+	static long getRequestBytes(Exchange exchange) {
+		CountingInputStream in = exchange.get(CountingInputStream.class);
+		return in != null ? in.count : 0;
+	}
+
+	static long getResponseBytes(Message message) {
+		CountingOutputStream out = message.get(CountingOutputStream.class);
+		return out != null ? out.count : 0;
+	}
+
+	public String toJson() {
+		StringBuilder builder = new StringBuilder();
+		toJson(builder);
+		return builder.toString();
+	}
+
+	private void toJson(StringBuilder builder) {
+		builder.append('{');
+		boolean first = true;
+		for (Entry<String, OperationMetrics> entry : new TreeMap<>(operations).entrySet()) {
+			if(!first) {
+				builder.append(',');
+			}
+			first = false;
+			appendString(builder, entry.getKey());
+			builder.append(':');
+			entry.getValue().toJson(builder);
+		}
+		builder.append('}');
+	}
+
+	/**
+	 * Convert metrics for multiple addresses to JSON.
+	 *
+	 * @param metrics metrics per address
+	 * @return JSON object with addresses as keys
+	 */
+	public static String toJson(Map<String, SoapMetrics> metrics) {
+		StringBuilder builder = new StringBuilder();
+		builder.append('{');
+		boolean first = true;
+		for (Entry<String, SoapMetrics> entry : new TreeMap<>(metrics).entrySet()) {
+			if(!first) {
+				builder.append(',');
+			}
+			first = false;
+			appendString(builder, entry.getKey());
+			builder.append(':');
+			entry.getValue().toJson(builder);
+		}
+		builder.append('}');
+		return builder.toString();
+	}
+
+	private static void appendString(StringBuilder builder, String value) {
+		builder.append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				builder.append('\\').append(c);
+			} else if(c < 0x20) {
+				builder.append(String.format("\\u%04x", (int)c));
+			} else {
+				builder.append(c);
+			}
+		}
+		builder.append('"');
+	}
+
+	/**
+	 * Write metrics to the directory given by the {@linkplain #DIRECTORY_PROPERTY} system property, if set.
+	 *
+	 * @param metrics metrics per address
+	 * @return the file written, or null
+	 */
+	static Path dump(Map<String, SoapMetrics> metrics) {
+		String directory = System.getProperty(DIRECTORY_PROPERTY);
+		if(directory == null || metrics.isEmpty()) {
+			return null;
+		}
+		try {
+			Path path = new File(directory).toPath();
+			Files.createDirectories(path);
+
+			Path file = Files.createTempFile(path, "soap-metrics-", ".json");
+			Files.write(file, toJson(metrics).getBytes(StandardCharsets.UTF_8));
+			return file;
+		} catch (IOException e) {
+			// metrics are not essential
+			return null;
+		}
+	}
+
+	private static class CountingInputStream extends FilterInputStream {
+
+		private volatile long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if(read != -1) {
+				count++;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if(read > 0) {
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			count += skipped;
+			return skipped;
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		private volatile long count;
+
+		CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	/**
+	 * Records the start time.
+	 */
+	private class ReceiveInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		ReceiveInterceptor() {
+			super(Phase.RECEIVE);
+			addBefore(AttachmentInInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			if(MessageUtils.isRequestor(message)) {
+				return;
+			}
+			Exchange exchange = message.getExchange();
+			if(exchange.containsKey(START)) {
+				// resumed
+				return;
+			}
+			exchange.put(START, System.nanoTime());
+		}
+	}
+
+	/**
+	 * Counts request bytes.
+	 */
+	private static class CountingInInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		CountingInInterceptor() {
+			super(Phase.RECEIVE);
+			addBefore(AttachmentInInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			if(MessageUtils.isRequestor(message)) {
+				return;
+			}
+			Exchange exchange = message.getExchange();
+			if(exchange.containsKey(CountingInputStream.class)) {
+				// resumed
+				return;
+			}
+			InputStream in = message.getContent(InputStream.class);
+			if(in != null) {
+				CountingInputStream counting = new CountingInputStream(in);
+				message.setContent(InputStream.class, counting);
+				exchange.put(CountingInputStream.class, counting);
+			}
+		}
+	}
+
+	/**
+	 * Counts response bytes.
+	 */
+	private static class CountingOutInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		CountingOutInterceptor() {
+			super(Phase.PREPARE_SEND);
+			addAfter(MessageSenderInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			OutputStream out = message.getContent(OutputStream.class);
+			if(out != null) {
+				CountingOutputStream counting = new CountingOutputStream(out);
+				message.setContent(OutputStream.class, counting);
+				message.put(CountingOutputStream.class, counting);
+			}
+		}
+	}
+
+	/**
+	 * Records metrics once the response has been written.
+	 */
+	private class RecordInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		private final boolean fault;
+
+		RecordInterceptor(boolean fault) {
+			// before the response is completed, so that it is recorded before the client sees it
+			super(Phase.PREPARE_SEND_ENDING);
+			addBefore(MessageSenderEndingInterceptor.class.getName());
+			this.fault = fault;
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			record(message, fault);
+		}
+	}
+}
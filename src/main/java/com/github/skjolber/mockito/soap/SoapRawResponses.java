@@ -0,0 +1,404 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.validation.Schema;
+
+import org.apache.cxf.annotations.SchemaValidation.SchemaValidationType;
+import org.apache.cxf.binding.soap.Soap11;
+import org.apache.cxf.binding.soap.SoapVersion;
+import org.apache.cxf.binding.soap.SoapVersionFactory;
+import org.apache.cxf.helpers.ServiceUtils;
+import org.apache.cxf.interceptor.AttachmentInInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.apache.cxf.ws.addressing.EndpointReferenceUtils;
+import org.xml.sax.SAXException;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+
+/**
+ * Raw XML responses, served without unmarshalling the request or marshalling the response.
+ * <br><br>
+ * Requests are matched on their raw bytes, by operation (the name of the SOAP body element), by exact request (in
+ * canonical form, see {@linkplain SoapRecording}) or by a custom {@linkplain Handler}, and the pre-serialized response
+ * envelope is written directly. Requests which are not matched fall through to the mock.
+ * <br><br>
+ * Enable by setting the endpoint property {@linkplain #PROPERTY} to an instance:
+ * <pre>
+ * SoapRawResponses responses = SoapRawResponses.newInstance()
+ *     .respond("getAccountsRequest", SoapRawResponses.envelope(getAccountsResponse));
+ * soap.mock(BankCustomerServicePortType.class, address, properties(SoapRawResponses.PROPERTY, responses));
+ * </pre>
+ * If schema validation is enabled for the endpoint, matched requests and responses are validated against the schema too.
+ * Multipart (i.e. MTOM) requests are not matched. Matched requests must use the same SOAP version as the response
+ * envelope, otherwise a VersionMismatch fault is returned.
+ */
+public class SoapRawResponses {
+
+	/** Endpoint property: a {@linkplain SoapRawResponses} */
+	public static final String PROPERTY = "mockito-soap-cxf.raw-responses";
+
+	/**
+	 * A raw response.
+	 */
+	public static class Response {
+
+		/**
+		 * Create a regular response.
+		 *
+		 * @param envelope response envelope
+		 * @return the response
+		 */
+		public static Response ok(byte[] envelope) {
+			return new Response(200, envelope);
+		}
+
+		/**
+		 * Create a fault response.
+		 *
+		 * @param envelope fault envelope
+		 * @return the response
+		 */
+		public static Response fault(byte[] envelope) {
+			return new Response(500, envelope);
+		}
+
+		private final int responseCode;
+		private final byte[] envelope;
+		private final SoapVersion version;
+
+		private Response(int responseCode, byte[] envelope) {
+			if(envelope == null) {
+				throw new IllegalArgumentException("Expected envelope");
+			}
+			String namespace;
+			try {
+				namespace = RawMessages.envelopeNamespace(envelope);
+			} catch (XMLStreamException e) {
+				throw new IllegalArgumentException("Unable to parse envelope", e);
+			}
+			if(namespace == null) {
+				throw new IllegalArgumentException("Expected SOAP 1.1 or 1.2 envelope");
+			}
+			this.responseCode = responseCode;
+			this.envelope = envelope;
+			this.version = SoapVersionFactory.getInstance().getSoapVersion(namespace);
+		}
+
+		public int getResponseCode() {
+			return responseCode;
+		}
+
+		public byte[] getEnvelope() {
+			return envelope;
+		}
+
+		public SoapVersion getVersion() {
+			return version;
+		}
+	}
+
+	/**
+	 * Custom matching of raw requests.
+	 */
+	@FunctionalInterface
+	public interface Handler {
+
+		/**
+		 * Handle a request.
+		 *
+		 * @param operation name of the SOAP body element, in the form <code>{namespace}localName</code>
+		 * @param request request envelope
+		 * @return the response, or null to pass the request on to the mock
+		 * @throws Exception if the request could not be handled
+		 */
+		Response handle(String operation, byte[] request) throws Exception;
+	}
+
+	/**
+	 * Create an empty instance.
+	 *
+	 * @return new instance
+	 */
+	public static SoapRawResponses newInstance() {
+		return new SoapRawResponses();
+	}
+
+	/**
+	 * Serialize a JAXB object (a root element) into a SOAP 1.1 envelope, i.e. to use as a response.
+	 *
+	 * @param payload body content
+	 * @return the envelope
+	 */
+	public static byte[] envelope(Object payload) {
+		return envelope(payload, Soap11.getInstance());
+	}
+
+	/**
+	 * Serialize a JAXB object (a root element) into an envelope of the given SOAP version, i.e. to use as a response
+	 * to SOAP 1.2 requests.
+	 *
+	 * @param payload body content
+	 * @param version SOAP version, i.e. {@linkplain org.apache.cxf.binding.soap.Soap12#getInstance()}
+	 * @return the envelope
+	 */
+	public static byte[] envelope(Object payload, SoapVersion version) {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		try {
+			bout.write(("<soap:Envelope xmlns:soap=\"" + version.getNamespace() + "\"><soap:Body>").getBytes(StandardCharsets.UTF_8));
+
+			Marshaller marshaller = JAXBContext.newInstance(payload.getClass()).createMarshaller();
+			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+			marshaller.setProperty(Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name());
+			marshaller.marshal(payload, bout);
+
+			bout.write("</soap:Body></soap:Envelope>".getBytes(StandardCharsets.UTF_8));
+		} catch (JAXBException | IOException e) {
+			throw new IllegalArgumentException("Unable to serialize " + payload, e);
+		}
+		return bout.toByteArray();
+	}
+
+	/**
+	 * Check whether raw responses are configured in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties
+	 * @return true if configured
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY);
+		if(value != null && !(value instanceof SoapRawResponses)) {
+			throw new IllegalArgumentException("Expected " + SoapRawResponses.class.getName() + " for property " + PROPERTY + ", got " + value);
+		}
+		return value != null;
+	}
+
+	/**
+	 * Add the interceptor for the raw responses configured in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties
+	 * @param inInterceptors endpoint in interceptors
+	 */
+	static void install(Map<String, Object> properties, List<Interceptor<? extends Message>> inInterceptors) {
+		SoapRawResponses responses = (SoapRawResponses)properties.get(PROPERTY);
+		inInterceptors.add(responses.new RawInterceptor());
+	}
+
+	// operation (qualified or local name) -> response
+	private final Map<String, Response> operations = new ConcurrentHashMap<>();
+	// canonical request hash -> response
+	private final Map<Long, Response> requests = new ConcurrentHashMap<>();
+	private volatile Handler handler;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private SoapRawResponses() {
+	}
+
+	/**
+	 * Respond to all requests for an operation.
+	 *
+	 * @param operation name of the SOAP body element, either local (i.e. <code>getAccountsRequest</code>) or qualified
+	 * (i.e. <code>{http://example.com/v1}getAccountsRequest</code>)
+	 * @param envelope response envelope
+	 * @return this instance
+	 */
+	public SoapRawResponses respond(String operation, byte[] envelope) {
+		return respond(operation, Response.ok(envelope));
+	}
+
+	/**
+	 * Respond to all requests for an operation.
+	 *
+	 * @param operation name of the SOAP body element, either local or qualified
+	 * @param response the response
+	 * @return this instance
+	 */
+	public SoapRawResponses respond(String operation, Response response) {
+		if(operation == null || response == null) {
+			throw new IllegalArgumentException("Expected operation and response");
+		}
+		operations.put(operation, response);
+		return this;
+	}
+
+	/**
+	 * Respond to a specific request. Requests are compared in canonical form, so namespace prefixes, attribute order and
+	 * whitespace do not matter. Takes precedence over responses per operation.
+	 *
+	 * @param request request envelope
+	 * @param response the response
+	 * @return this instance
+	 */
+	public SoapRawResponses respond(byte[] request, Response response) {
+		if(request == null || response == null) {
+			throw new IllegalArgumentException("Expected request and response");
+		}
+		try {
+			requests.put(RawMessages.canonicalKey(request).getHash(), response);
+		} catch (XMLStreamException e) {
+			throw new IllegalArgumentException("Unable to parse request", e);
+		}
+		return this;
+	}
+
+	/**
+	 * Set a handler for requests which do not match any request or operation.
+	 *
+	 * @param handler the handler, or null
+	 * @return this instance
+	 */
+	public SoapRawResponses handler(Handler handler) {
+		this.handler = handler;
+		return this;
+	}
+
+	/**
+	 * Remove all responses and the handler.
+	 */
+	public void clear() {
+		operations.clear();
+		requests.clear();
+		handler = null;
+	}
+
+	/**
+	 * Get the number of requests served from raw responses.
+	 *
+	 * @return number of requests
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of requests passed on to the mock.
+	 *
+	 * @return number of requests
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private Response lookup(RawMessages.RequestKey key, byte[] request) throws Exception {
+		if(!requests.isEmpty()) {
+			Response response = requests.get(key.getHash());
+			if(response != null) {
+				return response;
+			}
+		}
+		String operation = key.getOperation();
+		Response response = operations.get(operation);
+		if(response == null) {
+			response = operations.get(operation.substring(operation.indexOf('}') + 1));
+		}
+		if(response == null) {
+			Handler handler = this.handler;
+			if(handler != null) {
+				response = handler.handle(operation, request);
+			}
+		}
+		return response;
+	}
+
+	private class RawInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		RawInterceptor() {
+			super(Phase.RECEIVE);
+			addBefore(AttachmentInInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			if(!RawMessages.isPlain(message)) {
+				return;
+			}
+			try {
+				byte[] request = RawMessages.read(message);
+				if(request == null) {
+					return;
+				}
+				// envelope namespace, operation and (if matching on requests) hash in a single pass
+				RawMessages.RequestKey key = RawMessages.canonicalKey(request, !requests.isEmpty());
+				if(key.getOperation() == null) {
+					return;
+				}
+				Response response = lookup(key, request);
+				if(response == null) {
+					misses.increment();
+					return;
+				}
+
+				String namespace = key.getNamespace();
+				if(!response.getVersion().getNamespace().equals(namespace)) {
+					Fault fault = new Fault(new IllegalStateException("Expected SOAP " + response.getVersion().getVersion() + " request, got " + namespace));
+					SoapVersion version = namespace != null ? SoapVersionFactory.getInstance().getSoapVersion(namespace) : null;
+					fault.setFaultCode((version != null ? version : response.getVersion()).getVersionMismatch());
+					throw fault;
+				}
+
+				boolean validateRequest = ServiceUtils.isSchemaValidationEnabled(SchemaValidationType.IN, message);
+				boolean validateResponse = response.getResponseCode() == 200 && ServiceUtils.isSchemaValidationEnabled(SchemaValidationType.OUT, message);
+				if(validateRequest || validateResponse) {
+					Schema schema = getSchema(message);
+					if(schema != null) {
+						if(validateRequest) {
+							RawMessages.validate(schema, request);
+						}
+						if(validateResponse) {
+							RawMessages.validate(schema, response.getEnvelope());
+						}
+					}
+				}
+				hits.increment();
+
+				RawMessages.write(message, response.getResponseCode(), response.getVersion().getContentType() + "; charset=UTF-8", ByteBuffer.wrap(response.getEnvelope()));
+			} catch (Fault e) {
+				throw e;
+			} catch (SAXException e) {
+				// invalid request or response; report the underlying parse error
+				Throwable cause = e;
+				while(cause.getCause() != null && cause.getCause() != cause) {
+					cause = cause.getCause();
+				}
+				Fault fault = new Fault(cause);
+				fault.setFaultCode(Fault.FAULT_CODE_CLIENT);
+				throw fault;
+			} catch (Exception e) {
+				throw new Fault(e);
+			}
+		}
+
+		private Schema getSchema(Message message) {
+			Exchange exchange = message.getExchange();
+			if(exchange.getService() == null) {
+				return null;
+			}
+			for (ServiceInfo serviceInfo : exchange.getService().getServiceInfos()) {
+				// compiled schemas are cached on the service model (see SchemaCache)
+				Schema schema = EndpointReferenceUtils.getSchema(serviceInfo, exchange.getBus());
+				if(schema != null) {
+					return schema;
+				}
+			}
+			return null;
+		}
+	}
+}
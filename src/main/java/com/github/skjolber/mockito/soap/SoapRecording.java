@@ -0,0 +1,231 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.cxf.interceptor.AttachmentInInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+/**
+ * Record-and-replay of SOAP traffic.
+ * <br><br>
+ * In record mode, requests are forwarded to an upstream (real or stubbed) HTTP service, and each request-response pair is
+ * appended to a file, keyed by operation and a canonical hash of the request body. In replay mode, requests are served
+ * from that file through a memory-mapped index, without any upstream; requests which were not recorded fall through to
+ * the mock.
+ * <br><br>
+ * Enable by setting the endpoint property {@linkplain #PROPERTY} to a recording, i.e.
+ * <pre>
+ * soap.mock(MyPortType.class, address, properties(SoapRecording.PROPERTY, SoapRecording.replay(path)));
+ * </pre>
+ * Recorded and replayed messages are handled as raw bytes, so they bypass data binding and schema validation.
+ * Multipart (i.e. MTOM) requests are not recorded or replayed.
+ */
+public class SoapRecording {
+
+	/** Endpoint property: a {@linkplain SoapRecording} */
+	public static final String PROPERTY = "mockito-soap-cxf.recording";
+
+	private static final String SOAP_ACTION = "SOAPAction";
+
+	/**
+	 * Create a recording which forwards requests to an upstream service and appends the traffic to a file.
+	 *
+	 * @param file recording file, created if it does not exist
+	 * @param upstreamAddress upstream HTTP address
+	 * @return the recording
+	 */
+	public static SoapRecording record(Path file, String upstreamAddress) {
+		if(file == null) {
+			throw new IllegalArgumentException("Expected file");
+		}
+		if(upstreamAddress == null || !(upstreamAddress.startsWith("http://") || upstreamAddress.startsWith("https://"))) {
+			throw new IllegalArgumentException("Expected HTTP upstream address, got " + upstreamAddress);
+		}
+		return new SoapRecording(file, URI.create(upstreamAddress), null);
+	}
+
+	/**
+	 * Create a recording which serves the recorded traffic in a file.
+	 *
+	 * @param file recording file
+	 * @return the recording
+	 * @throws IOException if the file could not be read
+	 */
+	public static SoapRecording replay(Path file) throws IOException {
+		return new SoapRecording(file, null, new RecordingFile(file));
+	}
+
+	/**
+	 * Check whether a recording is configured in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties
+	 * @return true if configured
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY);
+		if(value != null && !(value instanceof SoapRecording)) {
+			throw new IllegalArgumentException("Expected " + SoapRecording.class.getName() + " for property " + PROPERTY + ", got " + value);
+		}
+		return value != null;
+	}
+
+	/**
+	 * Add the interceptor for the recording configured in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties
+	 * @param inInterceptors endpoint in interceptors
+	 */
+	static void install(Map<String, Object> properties, List<Interceptor<? extends Message>> inInterceptors) {
+		SoapRecording recording = (SoapRecording)properties.get(PROPERTY);
+		inInterceptors.add(recording.new RecordingInterceptor());
+	}
+
+	private final Path file;
+	private final URI upstream;
+	private final HttpClient client;
+	private final RecordingFile recording;
+
+	private final LongAdder recorded = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private SoapRecording(Path file, URI upstream, RecordingFile recording) {
+		this.file = file;
+		this.upstream = upstream;
+		this.recording = recording;
+		this.client = upstream != null ? HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build() : null;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public boolean isReplay() {
+		return recording != null;
+	}
+
+	/**
+	 * Get the number of request-response pairs recorded by this instance.
+	 *
+	 * @return number of records
+	 */
+	public long getRecorded() {
+		return recorded.sum();
+	}
+
+	/**
+	 * Get the number of requests served from the recording.
+	 *
+	 * @return number of requests
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Get the number of requests not found in the recording (and so passed on to the mock).
+	 *
+	 * @return number of requests
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	private class RecordingInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		RecordingInterceptor() {
+			super(Phase.RECEIVE);
+			addBefore(AttachmentInInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			if(!RawMessages.isPlain(message)) {
+				return;
+			}
+			try {
+				byte[] request = RawMessages.read(message);
+				if(request == null) {
+					return;
+				}
+				RawMessages.RequestKey key = RawMessages.canonicalKey(request);
+				if(key.getOperation() == null) {
+					return;
+				}
+				if(recording != null) {
+					replay(message, key, request);
+				} else {
+					record(message, key, request);
+				}
+			} catch (IOException | XMLStreamException e) {
+				throw new Fault(e);
+			}
+		}
+
+		private void replay(Message message, RawMessages.RequestKey key, byte[] request) throws IOException {
+			RecordingFile.Entry entry = recording.get(key, request);
+			if(entry == null) {
+				misses.increment();
+				return;
+			}
+			hits.increment();
+			RawMessages.write(message, entry.getResponseCode(), entry.getContentType(), entry.getResponse());
+		}
+
+		private void record(Message message, RawMessages.RequestKey key, byte[] request) throws IOException {
+			HttpRequest.Builder builder = HttpRequest.newBuilder(upstream).POST(HttpRequest.BodyPublishers.ofByteArray(request));
+
+			String contentType = (String)message.get(Message.CONTENT_TYPE);
+			if(contentType != null) {
+				builder.header("Content-Type", contentType);
+			}
+			String soapAction = getSoapAction(message);
+			if(soapAction != null) {
+				builder.header(SOAP_ACTION, soapAction);
+			}
+
+			HttpResponse<byte[]> response;
+			try {
+				response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while forwarding request to " + upstream, e);
+			}
+
+			String responseContentType = response.headers().firstValue("Content-Type").orElse(null);
+
+			RecordingFile.append(file, key, response.statusCode(), responseContentType, request, response.body());
+			recorded.increment();
+
+			RawMessages.write(message, response.statusCode(), responseContentType, ByteBuffer.wrap(response.body()));
+		}
+
+		@SuppressWarnings("unchecked")
+		private String getSoapAction(Message message) {
+			Map<String, List<String>> headers = (Map<String, List<String>>)message.get(Message.PROTOCOL_HEADERS);
+			if(headers != null) {
+				for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+					if(SOAP_ACTION.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+						return entry.getValue().get(0);
+					}
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.cxf.interceptor.AbstractOutDatabindingInterceptor;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.jaxws.interceptors.WrapperClassOutInterceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.message.MessageUtils;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.MessagePartInfo;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.staxutils.W3CDOMStreamWriter;
+import org.apache.cxf.wsdl.interceptors.BareOutInterceptor;
+
+/**
+ * Opt-in cache of serialized responses. When the mock returns the same response instance again, the previously
+ * serialized SOAP body content is written instead of marshalling the object again.
+ * <br><br>
+ * Enable by setting the endpoint property {@linkplain #PROPERTY} to <code>true</code>. Responses are matched by identity,
+ * so response instances must not be modified once returned.
+ */
+public class SoapResponseCache {
+
+	/** Endpoint property for enabling the response cache */
+	public static final String PROPERTY = "mockito-soap-cxf.response-cache";
+
+	/** Maximum number of cached responses per endpoint */
+	static final int MAX_ENTRIES = 256;
+
+	private static final String KEY = SoapResponseCache.class.getName() + ".key";
+
+	/**
+	 * Check whether the response cache is enabled in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties
+	 * @return true if enabled
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY);
+		return Boolean.TRUE.equals(value) || "true".equals(value);
+	}
+
+	/**
+	 * Add interceptors for a new response cache.
+	 *
+	 * @param outInterceptors endpoint out interceptors
+	 */
+	public static void install(List<Interceptor<? extends Message>> outInterceptors) {
+		SoapResponseCache cache = new SoapResponseCache();
+		outInterceptors.add(cache.new KeyInterceptor());
+		outInterceptors.add(cache.new WriteInterceptor());
+	}
+
+	// operation -> (response instance -> serialized body content), both keyed by identity
+	private final Map<Identity, Map<Identity, byte[]>> responses = new ConcurrentHashMap<>();
+
+	private byte[] get(BindingOperationInfo operation, Object response) {
+		Map<Identity, byte[]> map = responses.get(new Identity(operation));
+		return map != null ? map.get(new Identity(response)) : null;
+	}
+
+	private void put(BindingOperationInfo operation, Object response, byte[] bytes) {
+		Map<Identity, byte[]> map = responses.computeIfAbsent(new Identity(operation), k -> new ConcurrentHashMap<>());
+		synchronized (map) {
+			if(map.size() >= MAX_ENTRIES) {
+				map.clear();
+			}
+			map.put(new Identity(response), bytes);
+		}
+	}
+
+	/**
+	 * Map key which compares by identity.
+	 */
+	private static final class Identity {
+
+		private final Object value;
+
+		Identity(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(value);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Identity && ((Identity)obj).value == value;
+		}
+	}
+
+	/**
+	 * Captures the response instance as returned from the mock, before any wrapping.
+	 */
+	private class KeyInterceptor extends AbstractPhaseInterceptor<Message> {
+
+		KeyInterceptor() {
+			super(Phase.PRE_LOGICAL);
+			addBefore(WrapperClassOutInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			MessageContentsList objs = MessageContentsList.getContentsList(message);
+			if(objs != null && objs.size() == 1 && objs.get(0) != null) {
+				message.put(KEY, objs.get(0));
+			}
+		}
+	}
+
+	/**
+	 * Writes cached body content, or serializes the response and caches the result.
+	 */
+	private class WriteInterceptor extends AbstractOutDatabindingInterceptor {
+
+		WriteInterceptor() {
+			super(Phase.MARSHAL);
+			addBefore(BareOutInterceptor.class.getName());
+		}
+
+		@Override
+		public void handleMessage(Message message) throws Fault {
+			Object response = message.get(KEY);
+			if(response == null || MessageUtils.isRequestor(message) || message.getAttachments() != null) {
+				return;
+			}
+			Exchange exchange = message.getExchange();
+			BindingOperationInfo operation = exchange.getBindingOperationInfo();
+			if(operation == null || operation.getOutput() == null) {
+				return;
+			}
+			List<MessagePartInfo> parts = operation.getOutput().getMessageParts();
+			MessageContentsList objs = MessageContentsList.getContentsList(message);
+			if(parts.size() != 1 || objs == null) {
+				return;
+			}
+
+			byte[] bytes = get(operation, response);
+			if(bytes == null) {
+				bytes = serialize(message, exchange, operation, objs, parts);
+
+				put(operation, response, bytes);
+			}
+
+			try {
+				write(message, bytes);
+			} catch (IOException | XMLStreamException e) {
+				throw new Fault(e);
+			}
+
+			// body is written, skip regular marshalling
+			message.removeContent(List.class);
+		}
+
+		private byte[] serialize(Message message, Exchange exchange, BindingOperationInfo operation, MessageContentsList objs, List<MessagePartInfo> parts) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+			// the data binding might write to either the writer or the output stream
+			XMLStreamWriter writer = message.getContent(XMLStreamWriter.class);
+			OutputStream outputStream = message.getContent(OutputStream.class);
+
+			XMLStreamWriter capture = StaxUtils.createXMLStreamWriter(out, StandardCharsets.UTF_8.name());
+			message.setContent(XMLStreamWriter.class, capture);
+			message.setContent(OutputStream.class, out);
+			try {
+				writeParts(message, exchange, operation, objs, parts);
+
+				capture.flush();
+			} catch (XMLStreamException e) {
+				throw new Fault(e);
+			} finally {
+				message.setContent(XMLStreamWriter.class, writer);
+				message.setContent(OutputStream.class, outputStream);
+			}
+			return out.toByteArray();
+		}
+
+		private void write(Message message, byte[] bytes) throws IOException, XMLStreamException {
+			XMLStreamWriter writer = message.getContent(XMLStreamWriter.class);
+			OutputStream out = message.getContent(OutputStream.class);
+
+			String encoding = (String)message.get(Message.ENCODING);
+			boolean utf8 = encoding == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(encoding);
+			if(out != null && utf8 && !(writer instanceof W3CDOMStreamWriter)) {
+				// close any pending start tag, then write the bytes directly
+				writer.writeCharacters("");
+				writer.flush();
+				out.write(bytes);
+			} else {
+				XMLStreamReader reader = StaxUtils.createXMLStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8.name());
+				try {
+					StaxUtils.copy(reader, writer, true);
+				} finally {
+					reader.close();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,426 @@
+package com.github.skjolber.mockito.soap;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import org.w3c.dom.Document;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Routing table of canned responses, for stubbing many distinct responses per operation.
+ * <br><br>
+ * Mockito matches stubbings by scanning them with their argument matchers on every call. Instead, a route extracts a key
+ * from the request, either using a function over the request object or an XPath expression over its XML form, and looks
+ * up the response (or fault) in a hash table. Requests without a matching key fall through to the mock.
+ * <br><br>
+ * Enable by setting the endpoint property {@linkplain #PROPERTY} to a routing table, or to {@linkplain Boolean#TRUE} for a
+ * new (empty) table, available using <code>routes(address)</code> on the rule or extension:
+ * <pre>
+ * soap.mock(BankCustomerServicePortType.class, address, properties(SoapRoutes.PROPERTY, true));
+ *
+ * soap.routes(address)
+ *     .route("getAccounts", GetAccountsRequest.class, GetAccountsRequest::getCustomerNumber)
+ *     .respond("1234", response)
+ *     .fault("5678", fault);
+ * </pre>
+ * Routes can be added and modified while the endpoint is running.
+ *
+ * @param <T> the type of the mocked class
+ */
+public class SoapRoutes<T> {
+
+	/** Endpoint property: a {@linkplain SoapRoutes} instance, or {@linkplain Boolean#TRUE} for a new instance */
+	public static final String PROPERTY = "mockito-soap-cxf.routes";
+
+	// root element for XPath routes on request types which are not root elements
+	private static final QName REQUEST = new QName("request");
+
+	/**
+	 * Routes for a single operation.
+	 *
+	 * @param <R> request type
+	 */
+	public static class Route<R> {
+
+		private final Method method;
+		private final Class<R> requestType;
+		private final Function<? super R, ?> key;
+
+		// key -> response, or Failure
+		private final Map<Object, Object> responses = new ConcurrentHashMap<>();
+
+		Route(Method method, Class<R> requestType, Function<? super R, ?> key) {
+			this.method = method;
+			this.requestType = requestType;
+			this.key = key;
+		}
+
+		public String getOperation() {
+			return method.getName();
+		}
+
+		/**
+		 * Respond to requests with the given key.
+		 *
+		 * @param key request key
+		 * @param response the response
+		 * @return this instance
+		 */
+		public Route<R> respond(Object key, Object response) {
+			if(key == null || response == null) {
+				throw new IllegalArgumentException("Expected key and response");
+			}
+			responses.put(key, response);
+			return this;
+		}
+
+		/**
+		 * Respond to requests with the given keys.
+		 *
+		 * @param responses map of request key to response
+		 * @return this instance
+		 */
+		public Route<R> respond(Map<?, ?> responses) {
+			for (Map.Entry<?, ?> entry : responses.entrySet()) {
+				respond(entry.getKey(), entry.getValue());
+			}
+			return this;
+		}
+
+		/**
+		 * Fail requests with the given key.
+		 *
+		 * @param key request key
+		 * @param fault the exception to throw, i.e. created using {@linkplain SoapServiceFault}; must be unchecked or
+		 * declared by the operation
+		 * @return this instance
+		 */
+		public Route<R> fault(Object key, Exception fault) {
+			if(key == null || fault == null) {
+				throw new IllegalArgumentException("Expected key and fault");
+			}
+			if(!isThrowable(fault)) {
+				throw new IllegalArgumentException("Operation " + method.getName() + " does not declare " + fault.getClass().getName());
+			}
+			responses.put(key, new Failure(fault));
+			return this;
+		}
+
+		/**
+		 * Remove the response for a key, so that the corresponding requests fall through to the mock.
+		 *
+		 * @param key request key
+		 * @return this instance
+		 */
+		public Route<R> remove(Object key) {
+			responses.remove(key);
+			return this;
+		}
+
+		public int size() {
+			return responses.size();
+		}
+
+		private boolean isThrowable(Exception fault) {
+			if(fault instanceof RuntimeException) {
+				// including SoapFault
+				return true;
+			}
+			for (Class<?> exceptionType : method.getExceptionTypes()) {
+				if(exceptionType.isInstance(fault)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Look up the response for the request in the arguments.
+		 *
+		 * @param arguments method arguments
+		 * @return response or {@linkplain Failure}, or null if not found
+		 */
+		Object lookup(Object[] arguments) {
+			if(arguments == null) {
+				return null;
+			}
+			for (Object argument : arguments) {
+				if(requestType.isInstance(argument)) {
+					Object value = key.apply(requestType.cast(argument));
+					return value != null ? responses.get(value) : null;
+				}
+			}
+			return null;
+		}
+	}
+
+	private static class Failure {
+
+		private final Exception exception;
+
+		Failure(Exception exception) {
+			this.exception = exception;
+		}
+	}
+
+	/**
+	 * Create a new routing table.
+	 *
+	 * @param port service class
+	 * @param <T> the type of the mocked class
+	 * @return the routing table
+	 */
+	public static <T> SoapRoutes<T> newInstance(Class<T> port) {
+		return new SoapRoutes<>(port);
+	}
+
+	/**
+	 * Check whether routing is configured in the given endpoint properties.
+	 *
+	 * @param properties endpoint properties, or null
+	 * @return true if configured
+	 */
+	public static boolean isEnabled(Map<String, Object> properties) {
+		return properties != null && properties.get(PROPERTY) != null && properties.get(PROPERTY) != Boolean.FALSE;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> SoapRoutes<T> getInstance(Class<T> port, Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY);
+		if(value == Boolean.TRUE) {
+			return newInstance(port);
+		}
+		if(!(value instanceof SoapRoutes)) {
+			throw new IllegalArgumentException("Expected " + SoapRoutes.class.getName() + " or " + Boolean.TRUE + " for property " + PROPERTY + ", got " + value);
+		}
+		SoapRoutes<?> routes = (SoapRoutes<?>)value;
+		if(routes.port != port) {
+			throw new IllegalArgumentException("Expected routes for " + port.getName() + ", got " + routes.port.getName());
+		}
+		return (SoapRoutes<T>)routes;
+	}
+
+	private final Class<T> port;
+
+	// operation -> route
+	private final Map<String, Route<?>> routes = new ConcurrentHashMap<>();
+
+	private SoapRoutes(Class<T> port) {
+		this.port = port;
+	}
+
+	/**
+	 * Route an operation by a key extracted from the request object.
+	 *
+	 * @param operation operation (method) name
+	 * @param requestType request type
+	 * @param key function which extracts the key; returning null falls through to the mock
+	 * @param <R> request type
+	 * @return the (new) route for the operation
+	 */
+	public <R> Route<R> route(String operation, Class<R> requestType, Function<? super R, ?> key) {
+		Method method = assertOperation(operation);
+		Route<R> route = new Route<>(method, requestType, key);
+		routes.put(operation, route);
+		return route;
+	}
+
+	/**
+	 * Route an operation by the string value of an XPath expression, evaluated on the XML form of the first
+	 * request argument. This is slower than extracting the key from the request object, as the request is
+	 * marshalled for every call.
+	 * <br><br>
+	 * Request types which are not root elements (i.e. not annotated with {@linkplain XmlRootElement}) are marshalled
+	 * as an unqualified element named <code>request</code>, so expressions must target that element, i.e.
+	 * <code>/request/customerNumber</code>.
+	 *
+	 * @param operation operation (method) name
+	 * @param xpath XPath expression, i.e. <code>/*&#47;*[local-name()='customerNumber']</code>
+	 * @return the (new) route for the operation
+	 */
+	public Route<Object> route(String operation, String xpath) {
+		return route(operation, xpath, Collections.emptyMap());
+	}
+
+	/**
+	 * Route an operation by the string value of an XPath expression, evaluated on the XML form of the first
+	 * request argument.
+	 *
+	 * @param operation operation (method) name
+	 * @param xpath XPath expression
+	 * @param namespaces map of prefix to namespace, for use in the expression
+	 * @return the (new) route for the operation
+	 */
+	public Route<Object> route(String operation, String xpath, Map<String, String> namespaces) {
+		Method method = assertOperation(operation);
+		if(method.getParameterCount() == 0) {
+			throw new IllegalArgumentException("Operation " + operation + " has no request");
+		}
+		Class<?> requestType = method.getParameterTypes()[0];
+
+		XPathKey key = new XPathKey(requestType, xpath, namespaces);
+		Route<Object> route = new Route<>(method, Object.class, key);
+		routes.put(operation, route);
+		return route;
+	}
+
+	/**
+	 * Get the route for an operation.
+	 *
+	 * @param operation operation (method) name
+	 * @return the route, or null if none
+	 */
+	public Route<?> getRoute(String operation) {
+		return routes.get(operation);
+	}
+
+	/**
+	 * Remove all routes.
+	 */
+	public void clear() {
+		routes.clear();
+	}
+
+	public Class<T> getPort() {
+		return port;
+	}
+
+	private Method assertOperation(String operation) {
+		for (Method method : port.getMethods()) {
+			if(method.getName().equals(operation)) {
+				return method;
+			}
+		}
+		throw new IllegalArgumentException("Unknown operation " + operation + " for " + port.getName());
+	}
+
+	/**
+	 * Wrap a target so that routed requests are answered before reaching it.
+	 *
+	 * @param target instance unrouted calls are forwarded to
+	 * @return routing proxy
+	 */
+	T wrap(T target) {
+		InvocationHandler handler = (proxy, method, args) -> {
+			if(method.getDeclaringClass() != Object.class) {
+				Route<?> route = routes.get(method.getName());
+				if(route != null) {
+					Object response = route.lookup(args);
+					if(response instanceof Failure) {
+						throw ((Failure)response).exception;
+					}
+					if(response != null) {
+						return response;
+					}
+				}
+			}
+			try {
+				return method.invoke(target, args);
+			} catch(InvocationTargetException e) {
+				throw e.getCause();
+			}
+		};
+		return port.cast(Proxy.newProxyInstance(port.getClassLoader(), new Class<?>[]{port}, handler));
+	}
+
+	private static class XPathKey implements Function<Object, Object> {
+
+		private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = ThreadLocal.withInitial(() -> {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			try {
+				return factory.newDocumentBuilder();
+			} catch (ParserConfigurationException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		private final Class<?> requestType;
+		private final boolean rootElement;
+		private final MarshallerPool pool;
+		private final ThreadLocal<XPathExpression> expression;
+
+		XPathKey(Class<?> requestType, String xpath, Map<String, String> namespaces) {
+			this.requestType = requestType;
+			this.rootElement = requestType.isAnnotationPresent(XmlRootElement.class);
+			this.pool = new MarshallerPool(requestType);
+
+			NamespaceContext namespaceContext = new NamespaceContext() {
+				@Override
+				public String getNamespaceURI(String prefix) {
+					String namespace = namespaces.get(prefix);
+					return namespace != null ? namespace : XMLConstants.NULL_NS_URI;
+				}
+
+				@Override
+				public String getPrefix(String namespaceURI) {
+					return null;
+				}
+
+				@Override
+				public Iterator<String> getPrefixes(String namespaceURI) {
+					return Collections.emptyIterator();
+				}
+			};
+
+			// verify the expression up front; expressions are not thread-safe
+			compile(xpath, namespaceContext);
+			this.expression = ThreadLocal.withInitial(() -> compile(xpath, namespaceContext));
+		}
+
+		private static XPathExpression compile(String xpath, NamespaceContext namespaceContext) {
+			XPath path = XPathFactory.newInstance().newXPath();
+			path.setNamespaceContext(namespaceContext);
+			try {
+				return path.compile(xpath);
+			} catch (XPathExpressionException e) {
+				throw new IllegalArgumentException("Unable to compile XPath expression " + xpath, e);
+			}
+		}
+
+		@Override
+		public Object apply(Object request) {
+			if(!requestType.isInstance(request)) {
+				return null;
+			}
+			try {
+				Document document = DOCUMENT_BUILDERS.get().newDocument();
+
+				Object element = rootElement ? request : JaxbCopier.newElement(REQUEST, requestType, request);
+
+				Marshaller marshaller = pool.borrow(false);
+				try {
+					marshaller.marshal(element, document);
+				} finally {
+					pool.release(marshaller);
+				}
+
+				String value = expression.get().evaluate(document);
+				return value.isEmpty() ? null : value;
+			} catch (JAXBException | XPathExpressionException e) {
+				throw new IllegalStateException("Unable to extract key from " + request, e);
+			}
+		}
+	}
+}
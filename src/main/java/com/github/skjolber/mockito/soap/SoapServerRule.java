@@ -4,6 +4,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
 import org.apache.cxf.endpoint.Server;
 import org.apache.cxf.endpoint.EndpointImpl;
 import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
@@ -11,6 +13,10 @@ import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
 /**
  * Rule for mocking SOAP services using @{@linkplain JaxWsServerFactoryBean} to create {@linkplain Server}s.
  * Each individual service requires a separate port.
+ * <br><br>
+ * Optionally, all endpoints can be published on a single shared {@linkplain Bus} which lives as long as the rule.
+ * Resetting the rule then only removes the servers (and so the mocks), keeping the bus and its transports ready for
+ * the next test. Use as a {@linkplain org.junit.ClassRule} and call {@linkplain #reset()} after each test.
  *
  * @author thomas.skjolberg@gmail.com
  */
@@ -20,8 +26,30 @@ public class SoapServerRule extends SoapServiceRule {
 		return new SoapServerRule();
 	}
 
+	/**
+	 * Create rule.
+	 *
+	 * @param sharedBus if true, publish all endpoints on a single bus which is kept until the rule is destroyed
+	 * @return new rule
+	 */
+	public static SoapServerRule newInstance(boolean sharedBus) {
+		return new SoapServerRule(sharedBus);
+	}
+
 	private Map<String, Server> servers = new HashMap<>();
 
+	private final boolean sharedBus;
+	private Bus bus;
+
+	public SoapServerRule() {
+		this(false);
+	}
+
+	public SoapServerRule(boolean sharedBus) {
+		super("soap-server-rule");
+		this.sharedBus = sharedBus;
+	}
+
 	@Override
 	public <T> void proxy(T target, Class<T> port, String address, String wsdlLocation, List<String> schemaLocations, Map<String, Object> properties) {
 		assertValidParams(target, port, address);
@@ -30,9 +58,14 @@ public class SoapServerRule extends SoapServiceRule {
 			throw new IllegalArgumentException("Server " + address + " already exists");
 		}
 
-		T serviceInterface = SoapServiceProxy.newInstance(target);
+		T serviceInterface = SoapServiceProxy.newInstance(getRegistry().wrap(target, port, address, properties));
 
-		JaxWsServerFactoryBean svrFactory = new JaxWsServerFactoryBean();
+		Map<String, Object> endpointProperties = processProperties(properties, wsdlLocation, schemaLocations);
+
+		JaxWsServerFactoryBean svrFactory = new JaxWsServerFactoryBean(ServiceModelCache.getInstance().newServiceFactory(getClass(), port, wsdlLocation, schemaLocations, endpointProperties));
+		if(sharedBus) {
+			svrFactory.setBus(getBus());
+		}
 		svrFactory.setServiceClass(port);
 		svrFactory.setAddress(address);
 		svrFactory.setServiceBean(serviceInterface);
@@ -45,15 +78,61 @@ public class SoapServerRule extends SoapServiceRule {
 			svrFactory.setSchemaLocations(schemaLocations);
 		}
 
-		svrFactory.setProperties(processProperties(properties, wsdlLocation, schemaLocations));
+		svrFactory.setProperties(endpointProperties);
+
+		getRegistry().install(svrFactory.getBus(), address, endpointProperties, svrFactory);
 
 		Server server = svrFactory.create();
 
+		getRegistry().created(server, svrFactory.getBus(), port, wsdlLocation, schemaLocations);
+
 		servers.put(address, server);
 
 		server.start();
 	}
 
+	Server getServer(String address) {
+		return servers.get(address);
+	}
+
+	/**
+	 * Handle requests on virtual threads, including the mock invocation. Must be called before any endpoints are created.
+	 * Falls back to platform threads if virtual threads are not supported by the JVM.
+	 *
+	 * @return this instance
+	 */
+	public SoapServerRule withVirtualThreads() {
+		getRegistry().setVirtualThreads(true);
+		return this;
+	}
+
+	/**
+	 * Check whether requests are handled on virtual threads.
+	 *
+	 * @return true if virtual thread mode is enabled and supported by the JVM
+	 */
+	public boolean isVirtualThreads() {
+		return getRegistry().isVirtualThreads();
+	}
+
+	/**
+	 * Get the shared bus, creating it if necessary.
+	 *
+	 * @return the shared bus, or null if not in shared bus mode
+	 */
+	public Bus getBus() {
+		if(sharedBus && bus == null) {
+			bus = BusFactory.newInstance().createBus();
+		}
+		return bus;
+	}
+
+	@Override
+	protected void before() {
+		// pre-initialize the shared bus
+		getBus();
+	}
+
 	@Override
 	protected void after() {
 		destroy();
@@ -61,6 +140,13 @@ public class SoapServerRule extends SoapServiceRule {
 
 	public void destroy() {
 		reset();
+
+		if(bus != null) {
+			bus.shutdown(true);
+			bus = null;
+		}
+
+		getRegistry().destroy();
 	}
 
 	@Override
@@ -73,12 +159,19 @@ public class SoapServerRule extends SoapServiceRule {
 		servers.values().forEach(Server::start);
 	}
 
+	/**
+	 * Stop and remove servers. Unless in shared bus mode, also shut down the bus of each server.
+	 */
 	public void reset() {
 		servers.values().forEach(server -> {
 			server.destroy();
-			((EndpointImpl)server.getEndpoint()).getBus().shutdown(true);
+			ServiceModelCache.getInstance().release(server);
+			if(!sharedBus) {
+				((EndpointImpl)server.getEndpoint()).getBus().shutdown(true);
+			}
 		});
 		servers.clear();
+		getRegistry().clear();
 	}
 
 	@Override
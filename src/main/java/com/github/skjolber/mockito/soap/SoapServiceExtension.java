@@ -4,6 +4,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
 import org.apache.cxf.endpoint.EndpointImpl;
 import org.apache.cxf.endpoint.Server;
 import org.apache.cxf.jaxws.JaxWsServerFactoryBean;
@@ -11,10 +13,34 @@ import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 
+/**
+ * Extension for mocking SOAP services using @{@linkplain JaxWsServerFactoryBean} to create {@linkplain Server}s.
+ * <br><br>
+ * Optionally, all endpoints can be published on a single shared {@linkplain Bus} which lives as long as the extension,
+ * so that resetting after each test only removes the servers (and so the mocks). Register using
+ * {@linkplain org.junit.jupiter.api.extension.RegisterExtension} to enable.
+ */
 public class SoapServiceExtension extends SoapExtension {
 
 	private Map<String, Server> servers = new HashMap<>();
 
+	private final boolean sharedBus;
+	private Bus bus;
+
+	public SoapServiceExtension() {
+		this(false);
+	}
+
+	/**
+	 * Create extension.
+	 *
+	 * @param sharedBus if true, publish all endpoints on a single bus which is kept until after all tests
+	 */
+	public SoapServiceExtension(boolean sharedBus) {
+		super("soap-service-extension");
+		this.sharedBus = sharedBus;
+	}
+
 	@Override
 	public <T> void proxy(T target, Class<T> port, String address, String wsdlLocation, List<String> schemaLocations, Map<String, Object> properties) {
 		assertValidParams(target, port, address);
@@ -23,9 +49,14 @@ public class SoapServiceExtension extends SoapExtension {
 			throw new IllegalArgumentException("Server " + address + " already exists");
 		}
 
-		T serviceInterface = SoapServiceProxy.newInstance(target);
+		T serviceInterface = SoapServiceProxy.newInstance(getRegistry().wrap(target, port, address, properties));
+
+		Map<String, Object> endpointProperties = processProperties(properties, wsdlLocation, schemaLocations);
 
-		JaxWsServerFactoryBean svrFactory = new JaxWsServerFactoryBean();
+		JaxWsServerFactoryBean svrFactory = new JaxWsServerFactoryBean(ServiceModelCache.getInstance().newServiceFactory(getClass(), port, wsdlLocation, schemaLocations, endpointProperties));
+		if(sharedBus) {
+			svrFactory.setBus(getBus());
+		}
 		svrFactory.setServiceClass(port);
 		svrFactory.setAddress(address);
 		svrFactory.setServiceBean(serviceInterface);
@@ -38,10 +69,14 @@ public class SoapServiceExtension extends SoapExtension {
 			svrFactory.setSchemaLocations(schemaLocations);
 		}
 
-		svrFactory.setProperties(processProperties(properties, wsdlLocation, schemaLocations));
+		svrFactory.setProperties(endpointProperties);
+
+		getRegistry().install(svrFactory.getBus(), address, endpointProperties, svrFactory);
 
 		Server server = svrFactory.create();
 
+		getRegistry().created(server, svrFactory.getBus(), port, wsdlLocation, schemaLocations);
+
 		servers.put(address, server);
 
 		server.start();
@@ -74,9 +109,42 @@ public class SoapServiceExtension extends SoapExtension {
 		throw new RuntimeException();
 	}
 
+	/**
+	 * Handle requests on virtual threads, including the mock invocation. Must be called before any endpoints are created.
+	 * Falls back to platform threads if virtual threads are not supported by the JVM.
+	 *
+	 * @return this instance
+	 */
+	public SoapServiceExtension withVirtualThreads() {
+		getRegistry().setVirtualThreads(true);
+		return this;
+	}
+
+	/**
+	 * Check whether requests are handled on virtual threads.
+	 *
+	 * @return true if virtual thread mode is enabled and supported by the JVM
+	 */
+	public boolean isVirtualThreads() {
+		return getRegistry().isVirtualThreads();
+	}
+
+	/**
+	 * Get the shared bus, creating it if necessary.
+	 *
+	 * @return the shared bus, or null if not in shared bus mode
+	 */
+	public Bus getBus() {
+		if(sharedBus && bus == null) {
+			bus = BusFactory.newInstance().createBus();
+		}
+		return bus;
+	}
+
 	@Override
 	public void beforeAll(ExtensionContext context) throws Exception {
-		
+		// pre-initialize the shared bus
+		getBus();
 	}
 
 	@Override
@@ -97,17 +165,31 @@ public class SoapServiceExtension extends SoapExtension {
 		servers.values().forEach(Server::start);
 	}
 
+	/**
+	 * Stop and remove servers. Unless in shared bus mode, also shut down the bus of each server.
+	 */
 	public void reset() {
 		servers.values().forEach(server -> {
 			server.destroy();
-			((EndpointImpl)server.getEndpoint()).getBus().shutdown(true);
+			ServiceModelCache.getInstance().release(server);
+			if(!sharedBus) {
+				((EndpointImpl)server.getEndpoint()).getBus().shutdown(true);
+			}
 		});
 		servers.clear();
+		getRegistry().clear();
 	}
 
 	@Override
 	public void afterAll(ExtensionContext context) throws Exception {
-		
-	}	
+		reset();
+
+		if(bus != null) {
+			bus.shutdown(true);
+			bus = null;
+		}
+
+		getRegistry().destroy();
+	}
 
 }
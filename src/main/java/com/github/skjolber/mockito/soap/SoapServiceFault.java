@@ -1,6 +1,8 @@
 package com.github.skjolber.mockito.soap;
 
 import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBElement;
@@ -10,6 +12,7 @@ import jakarta.xml.bind.annotation.XmlRootElement;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.dom.DOMResult;
 
 import org.apache.cxf.binding.soap.SoapFault;
@@ -20,6 +23,18 @@ import org.xml.sax.InputSource;
 
 public class SoapServiceFault {
 
+	private static final Map<Class<?>, MarshallerPool> POOLS = new ConcurrentHashMap<>();
+
+	private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = ThreadLocal.withInitial(() -> {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		try {
+			return factory.newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
 	/**
 	 * Create SOAP fault without detail.
 	 *
@@ -51,15 +66,19 @@ public class SoapServiceFault {
 	 * @return SOAP fault
 	 */
 	public static SoapFault createFault(String detail) {
+		return createFault(parse(detail));
+	}
+
+	static Element parse(String detail) {
+		DocumentBuilder builder = DOCUMENT_BUILDERS.get();
 		try {
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
 			Document document = builder.parse(new InputSource(new StringReader(detail)));
 
-			return createFault(document.getDocumentElement());
+			return document.getDocumentElement();
 		} catch(Exception e) {
 			throw new IllegalArgumentException(detail, e);
+		} finally {
+			builder.reset();
 		}
 	}
 
@@ -73,29 +92,46 @@ public class SoapServiceFault {
 		return createFault(detail, null);
 	}
 
+	/**
+	 * Create SOAP fault with detail. JAXB contexts and marshallers are reused per detail class.
+	 *
+	 * @param detail JAXB-serializable detail
+	 * @param qname element name, for details which are not root elements
+	 * @return SOAP fault
+	 */
 	public static <T> SoapFault createFault(Object detail, QName qname) {
-		// not for production use; does not reuse JAXB context
+		return createFault(marshal(detail, qname));
+	}
+
+	static Node marshal(Object detail, QName qname) {
 		try {
-			JAXBContext context = JAXBContext.newInstance(detail.getClass());
+			MarshallerPool pool = getPool(detail.getClass());
 
 			DOMResult result = new DOMResult();
 
-			Marshaller marshaller;
-			if(detail.getClass().isAnnotationPresent(XmlRootElement.class)) {
-				marshaller = getMarshaller(context, false);
-			} else {
+			boolean fragment = !detail.getClass().isAnnotationPresent(XmlRootElement.class);
+			if(fragment) {
 				detail = new JAXBElement(qname, detail.getClass(), detail);
-				marshaller = getMarshaller(context, true);
 			}
 
-			marshaller.marshal(detail, result);
+			Marshaller marshaller = pool.borrow(fragment);
+			try {
+				marshaller.marshal(detail, result);
+			} finally {
+				pool.release(marshaller);
+			}
 
-			return createFault(result.getNode().getFirstChild());
+			return result.getNode().getFirstChild();
 		} catch(Exception e) {
 			throw new IllegalArgumentException(e);
 		}
 	}
 
+	private static MarshallerPool getPool(Class<?> type) {
+		// the context is created at most once per type
+		return POOLS.computeIfAbsent(type, MarshallerPool::new);
+	}
+
 	protected static Marshaller getMarshaller(JAXBContext context, boolean fragment) throws JAXBException {
 		Marshaller marshaller = context.createMarshaller();
 
@@ -3,12 +3,67 @@ package com.github.skjolber.mockito.soap;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.continuations.SuspendedInvocationException;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.PhaseInterceptorChain;
 
 /**
  * Utility class to wrap the webservice implementation in a mock.
+ * <br><br>
+ * If the transport supports continuations, answers which complete asynchronously (see {@linkplain SoapAnswers})
+ * suspend the request, and the result is returned when the request resumes, without invoking the mock again.
  */
 public class SoapServiceProxy implements InvocationHandler {
-	private Object obj;
+
+	private static final ThreadLocal<ContinuationProvider> PROVIDER = new ThreadLocal<>();
+	private static final ThreadLocal<CompletionStage<?>> DEFERRED = new ThreadLocal<>();
+
+	// set once a deferring answer has been created; until then, invocations skip the deferral bookkeeping
+	private static volatile boolean deferring;
+
+	/**
+	 * Result of an asynchronous answer, stored on the exchange while the request resumes.
+	 */
+	private static class DeferredResult {
+
+		private final Object value;
+		private final Throwable throwable;
+
+		DeferredResult(Object value, Throwable throwable) {
+			this.value = value;
+			this.throwable = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+		}
+	}
+
+	/**
+	 * Enable deferral for subsequent invocations. Called when an answer which might defer its result is created.
+	 */
+	static void enableDeferral() {
+		deferring = true;
+	}
+
+	/**
+	 * Defer the result of the current invocation, if possible.
+	 *
+	 * @param stage stage which completes with the result
+	 * @return true if the request will be suspended until the stage completes, false if the caller must wait itself
+	 */
+	static boolean defer(CompletionStage<?> stage) {
+		if(PROVIDER.get() == null || DEFERRED.get() != null) {
+			return false;
+		}
+		DEFERRED.set(stage);
+		return true;
+	}
+
+	private final Object obj;
 
 	public static <T> T newInstance(T obj) {
 		SoapServiceProxy proxy = new SoapServiceProxy(obj);
@@ -22,6 +77,65 @@ public class SoapServiceProxy implements InvocationHandler {
 
 	@Override
 	public Object invoke(Object proxy, Method m, Object[] args) throws Exception {
+		if(!deferring) {
+			return invoke(m, args);
+		}
+		Message message = PhaseInterceptorChain.getCurrentMessage();
+		if(message == null) {
+			return invoke(m, args);
+		}
+
+		Exchange exchange = message.getExchange();
+		DeferredResult result = exchange.remove(DeferredResult.class);
+		if(result != null) {
+			// resumed
+			if(result.throwable != null) {
+				throw toException(result.throwable);
+			}
+			return result.value;
+		}
+
+		ContinuationProvider provider = message.get(ContinuationProvider.class);
+
+		Object value;
+		CompletionStage<?> deferred;
+		PROVIDER.set(provider);
+		try {
+			value = invoke(m, args);
+		} finally {
+			deferred = DEFERRED.get();
+			DEFERRED.remove();
+			PROVIDER.remove();
+		}
+
+		if(deferred == null) {
+			return value;
+		}
+
+		Continuation continuation = provider.getContinuation();
+		if(continuation == null) {
+			// continuations not available for this request after all
+			try {
+				return deferred.toCompletableFuture().get();
+			} catch (ExecutionException e) {
+				throw toException(e.getCause());
+			}
+		}
+		synchronized (continuation) {
+			continuation.suspend(0);
+		}
+		deferred.whenComplete((v, t) -> {
+			exchange.put(DeferredResult.class, new DeferredResult(v, t));
+			synchronized (continuation) {
+				continuation.resume();
+			}
+		});
+		throw new SuspendedInvocationException();
+	}
+
+	private Object invoke(Method m, Object[] args) throws Exception {
+		// reflective dispatch; a table of bound method handles is slower, as handles which are not constants
+		// are not inlined (see ProxyInvokeBenchmark)
 		try {
 			return m.invoke(obj, args);
 		} catch (Exception e) {
@@ -31,4 +145,11 @@ public class SoapServiceProxy implements InvocationHandler {
 			throw new RuntimeException(e.getMessage(), e);
 		}
 	}
+
+	private static Exception toException(Throwable e) {
+		if(e instanceof org.apache.cxf.binding.soap.SoapFault) {
+			return (Exception)e;
+		}
+		return new RuntimeException(e.getMessage(), e);
+	}
 }
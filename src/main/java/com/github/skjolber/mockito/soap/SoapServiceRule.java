@@ -13,6 +13,21 @@ import java.util.Map;
  */
 public abstract class SoapServiceRule extends org.junit.rules.ExternalResource {
 
+	private final SoapEndpointRegistry registry;
+
+	public SoapServiceRule() {
+		this("soap-service-rule");
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threadPoolName thread name prefix for the Jetty thread pool
+	 */
+	SoapServiceRule(String threadPoolName) {
+		this.registry = new SoapEndpointRegistry(threadPoolName);
+	}
+
 	public static SoapServiceRule newInstance() {
 		return new SoapEndpointRule();
 	}
@@ -139,11 +154,54 @@ public abstract class SoapServiceRule extends org.junit.rules.ExternalResource {
 
 	private <T> T mock(Class<T> port, String address, String wsdlLocation, List<String> schemaLocations, Map<String, Object> properties) {
 		// wrap the evaluator mock in proxy
-		T mock = org.mockito.Mockito.mock(port);
+		T mock;
+		if(SoapInvocations.isEnabled(properties)) {
+			// invocations are recorded in bounded form instead
+			mock = org.mockito.Mockito.mock(port, org.mockito.Mockito.withSettings().stubOnly());
+		} else {
+			mock = org.mockito.Mockito.mock(port);
+		}
 		proxy(mock, port, address, wsdlLocation, schemaLocations, properties);
 		return mock;
 	}
 
+	/**
+	 * Get the recorded invocations for the endpoint at an address, if bounded recording is enabled
+	 * (see {@linkplain SoapInvocations#PROPERTY}).
+	 *
+	 * @param address address, i.e. http://localhost:1234
+	 * @return invocations, or null if not enabled for the address
+	 */
+	public SoapInvocations invocations(String address) {
+		return registry.getInvocations(address);
+	}
+
+	/**
+	 * Get the routing table for the endpoint at an address, if routing is enabled
+	 * (see {@linkplain SoapRoutes#PROPERTY}).
+	 *
+	 * @param address address, i.e. http://localhost:1234
+	 * @param <T> the type of the mocked class
+	 * @return routing table, or null if not enabled for the address
+	 */
+	public <T> SoapRoutes<T> routes(String address) {
+		return registry.getRoutes(address);
+	}
+
+	/**
+	 * Get metrics for the endpoint at an address, if enabled (see {@linkplain SoapMetrics#PROPERTY}).
+	 *
+	 * @param address address, i.e. http://localhost:1234
+	 * @return metrics, or null if not enabled for the address
+	 */
+	public SoapMetrics metrics(String address) {
+		return registry.getMetrics(address);
+	}
+
+	SoapEndpointRegistry getRegistry() {
+		return registry;
+	}
+
 	protected <T> void assertValidParams(T target, Class<T> port, String address) {
 		if(target == null) {
 			throw new IllegalArgumentException("Expected proxy target");
@@ -9,12 +9,15 @@ module com.github.skjolber.mockito.soap {
     requires jakarta.xml.ws;
 
     requires java.net.http;
+    requires jdk.jfr;
     requires java.base;
 
     requires org.apache.cxf.core;
     requires org.apache.cxf.binding.soap;
     requires org.apache.cxf.frontend.jaxws;
     requires org.apache.cxf.transport.http;
+    requires org.apache.cxf.transport.http.jetty;
+    requires org.eclipse.jetty.util;
     requires org.apache.cxf.frontend.jaxrs;
     requires org.apache.cxf.frontend.simple;
 
@@ -0,0 +1,44 @@
+package com.github.skjolber.mockito.soap;
+
+import org.apache.cxf.jaxws.JaxWsProxyFactoryBean;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+/**
+ * Shared client and message fixtures for the bank customer service.
+ */
+final class BankCustomerClients {
+
+	private BankCustomerClients() {
+	}
+
+	static BankCustomerServicePortType createClient(String address) {
+		JaxWsProxyFactoryBean factory = new JaxWsProxyFactoryBean();
+		factory.setServiceClass(BankCustomerServicePortType.class);
+		factory.setAddress(address);
+		return (BankCustomerServicePortType)factory.create();
+	}
+
+	static GetAccountsRequest createRequest(String customerNumber) {
+		GetAccountsRequest request = new GetAccountsRequest();
+		request.setCustomerNumber(customerNumber);
+		return request;
+	}
+
+	static GetAccountsResponse createResponse(String ... accounts) {
+		GetAccountsResponse response = new GetAccountsResponse();
+		for(String account : accounts) {
+			response.getAccount().add(account);
+		}
+		return response;
+	}
+
+	static BankRequestHeader createHeader() {
+		BankRequestHeader header = new BankRequestHeader();
+		header.setSecret("abc");
+		return header;
+	}
+}
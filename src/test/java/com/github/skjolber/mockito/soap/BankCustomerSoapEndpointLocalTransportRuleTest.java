@@ -0,0 +1,152 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.binding.soap.SoapFault;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+import com.github.skjolber.shop.example.v1.ShopCustomerServicePortType;
+
+/**
+ * Test with logical ports for the local transport (as a {@linkplain ClassRule}), so that no sockets are bound or leased.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations={"classpath:/spring/beans.xml"})
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+@ActiveProfiles("dev4")
+public class BankCustomerSoapEndpointLocalTransportRuleTest {
+
+	@Rule
+	public ExpectedException exception = ExpectedException.none();
+
+	@ClassRule
+	public static SoapEndpointRule soap = SoapEndpointRule.newLocalInstance("myPort");
+
+	/**
+	 * Endpoint address with the logical port: local://localhost:${myPort}/selfservice/bank
+	 */
+	@Value("${bankcustomer.service}")
+	private String bankCustomerServiceAddress;
+
+	@Value("${shopcustomer.service}")
+	private String shopCustomerServiceAddress;
+
+	private BankCustomerServicePortType bankServiceMock;
+	private ShopCustomerServicePortType shopServiceMock;
+
+	@Autowired
+	private BankCustomerService bankCustomerService;
+
+	@Autowired
+	private Bus bus;
+
+	@Before
+	public void setup() {
+		// local endpoints are published on the thread default bus, which must be the bus of the clients
+		BusFactory.setThreadDefaultBus(bus);
+
+		bankServiceMock = soap.mock(BankCustomerServicePortType.class, bankCustomerServiceAddress, Arrays.asList("classpath:wsdl/BankCustomerService.xsd"));
+		shopServiceMock = soap.mock(ShopCustomerServicePortType.class, shopCustomerServiceAddress);
+	}
+
+	@After
+	public void teardown() {
+		soap.clear();
+		BusFactory.setThreadDefaultBus(null);
+	}
+
+	@Test
+	public void testNamedPort() throws Exception {
+		Assert.assertTrue(soap.isLocal());
+
+		int port = soap.getPort("myPort");
+		Assert.assertTrue(port > 0);
+		assertThat(soap.getPorts().get("myPort"), is(port));
+		assertThat(System.getProperty("myPort"), is(Integer.toString(port)));
+
+		// both services on the same logical port
+		assertThat(bankCustomerServiceAddress, is("local://localhost:" + port + "/selfservice/bank"));
+		assertThat(shopCustomerServiceAddress, is("local://localhost:" + port + "/selfservice/shop"));
+	}
+
+	@Test
+	public void testPortNotLeased() throws Exception {
+		// logical ports are not leased (PortLeases.NONE), so the port is still free for other processes
+		int port = soap.getPort("myPort");
+		PortLeases leases = PortLeases.getInstance();
+		Assert.assertTrue(leases.lease(port));
+		leases.release(port);
+	}
+
+	@Test
+	public void processNormalSoapCall() throws Exception {
+		GetAccountsResponse mockResponse = new GetAccountsResponse();
+		List<String> accountList = mockResponse.getAccount();
+		accountList.add("1234");
+		accountList.add("5678");
+
+		when(bankServiceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(mockResponse);
+
+		GetAccountsResponse accounts = bankCustomerService.getAccounts("123456789", "abc");
+
+		verify(bankServiceMock, times(1)).getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class));
+		verifyNoInteractions(shopServiceMock);
+
+		assertThat(accounts.getAccount(), is(accountList));
+	}
+
+	@Test
+	public void processSoapCallWithException() throws Exception {
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+
+		SoapFault fault = createFault(bankException);
+
+		when(bankServiceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenThrow(fault);
+
+		exception.expect(Exception.class);
+
+		bankCustomerService.getAccounts("123456789", "abc");
+	}
+
+	@Test
+	public void processValidationException() throws Exception {
+		when(bankServiceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(new GetAccountsResponse());
+
+		exception.expect(Exception.class); // customer number must be all numbers
+
+		bankCustomerService.getAccounts("abcdef", "abc");
+	}
+}
@@ -0,0 +1,44 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DelaySchedulerTest {
+
+	@Test
+	public void testNeverEarly() throws Exception {
+		// small wheel, so that tasks wrap around several rounds
+		DelayScheduler scheduler = new DelayScheduler(TimeUnit.MILLISECONDS.toNanos(1), 16);
+
+		int count = 10000;
+		CountDownLatch latch = new CountDownLatch(count);
+		AtomicInteger early = new AtomicInteger();
+		for(int i = 0; i < count; i++) {
+			long delay = ThreadLocalRandom.current().nextLong(200);
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+			scheduler.schedule(() -> {
+				if(System.nanoTime() < deadline) {
+					early.incrementAndGet();
+				}
+				latch.countDown();
+			}, delay);
+		}
+
+		try {
+			Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+			Assert.assertEquals(0, early.get());
+		} finally {
+			scheduler.stop();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWheelSize() {
+		new DelayScheduler(TimeUnit.MILLISECONDS.toNanos(1), 10);
+	}
+}
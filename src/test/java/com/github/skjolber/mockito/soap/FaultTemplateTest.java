@@ -0,0 +1,118 @@
+package com.github.skjolber.mockito.soap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.helpers.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+
+public class FaultTemplateTest {
+
+	@Test
+	public void testString() throws IOException {
+		FaultTemplate template = FaultTemplate.newInstance(IOUtils.toString(getClass().getResourceAsStream("/example/bankException.xml")));
+
+		SoapFault fault1 = template.createFault();
+		SoapFault fault2 = template.createFault();
+
+		Assert.assertNotSame(fault1, fault2);
+		Assert.assertNotSame(fault1.getDetail(), fault2.getDetail());
+		Assert.assertNotSame(fault1.getDetail().getOwnerDocument(), fault2.getDetail().getOwnerDocument());
+		assertThat(getText(fault1, "code"), is("myErrorCode"));
+		assertThat(getText(fault2, "code"), is("myErrorCode"));
+	}
+
+	@Test
+	public void testParameters() {
+		BankException bankException = new BankException();
+		bankException.setCode("${code}");
+		bankException.setMessage("Error ${code}: ${message}");
+
+		FaultTemplate template = FaultTemplate.newInstance(bankException);
+
+		Map<String, String> values = new HashMap<>();
+		values.put("code", "123");
+		values.put("message", "abc");
+
+		SoapFault fault = template.createFault(values);
+		assertThat(getText(fault, "code"), is("123"));
+		assertThat(getText(fault, "message"), is("Error 123: abc"));
+
+		// template itself is unchanged
+		assertThat(getText(template.createFault(), "code"), is("${code}"));
+	}
+
+	@Test
+	public void testConcurrentParameters() throws Exception {
+		BankException bankException = new BankException();
+		bankException.setCode("${code}");
+		bankException.setMessage("myErrorMessage");
+
+		FaultTemplate template = FaultTemplate.newInstance(bankException);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for(int i = 0; i < 4; i++) {
+				String code = Integer.toString(i);
+				futures.add(executor.submit(() -> {
+					for(int k = 0; k < 1000; k++) {
+						assertThat(getText(template.createFault(Collections.singletonMap("code", code)), "code"), is(code));
+					}
+				}));
+			}
+			for(Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testAnswer() throws Exception {
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+
+		BankCustomerServicePortType serviceMock = mock(BankCustomerServicePortType.class);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(FaultTemplate.newInstance(bankException));
+
+		BankCustomerServicePortType client = SoapDirectClient.newInstance(serviceMock, BankCustomerServicePortType.class);
+		for(int i = 0; i < 2; i++) {
+			try {
+				client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+				Assert.fail();
+			} catch(BankException_Exception e) {
+				assertThat(e.getFaultInfo().getCode(), is("myErrorCode"));
+			}
+		}
+	}
+
+	private static String getText(SoapFault fault, String localName) {
+		Element detail = fault.getDetail();
+		return detail.getElementsByTagNameNS("*", localName).item(0).getTextContent();
+	}
+}
@@ -0,0 +1,113 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+public class LatencyTest {
+
+	private static final String ADDRESS = "http://localhost:12350/service";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Test
+	public void testDistributions() {
+		assertThat(Latency.fixed(Duration.ofMillis(10)).nextDelay(), is(10L));
+
+		Latency uniform = Latency.uniform(Duration.ofMillis(10), Duration.ofMillis(20));
+		Latency logNormal = Latency.logNormal(Duration.ofMillis(100), 0.5);
+
+		Map<Double, Duration> table = new TreeMap<>();
+		table.put(50d, Duration.ofMillis(10));
+		table.put(100d, Duration.ofMillis(20));
+		Latency percentiles = Latency.percentiles(table);
+
+		for(int i = 0; i < 1000; i++) {
+			long delay = uniform.nextDelay();
+			Assert.assertTrue(delay >= 10 && delay <= 20);
+
+			Assert.assertTrue(logNormal.nextDelay() >= 0);
+
+			delay = percentiles.nextDelay();
+			Assert.assertTrue(delay >= 0 && delay <= 20);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidProperty() {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(Latency.PROPERTY, 100));
+	}
+
+	@Test
+	public void testOperationLatency() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(
+				Latency.property("getAccounts"), Latency.fixed(Duration.ofMillis(300))
+				));
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(new GetAccountsResponse());
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+
+		long time = System.currentTimeMillis();
+		client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+		Assert.assertTrue(System.currentTimeMillis() - time >= 300);
+	}
+
+	@Test
+	public void testDelayDoesNotHoldThreads() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(
+				Latency.PROPERTY, Latency.fixed(Duration.ofMillis(1000))
+				));
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(new GetAccountsResponse());
+
+		int count = 16;
+		List<BankCustomerServicePortType> clients = new ArrayList<>();
+		for(int i = 0; i < count; i++) {
+			clients.add(createClient(ADDRESS));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(count);
+		try {
+			List<Future<GetAccountsResponse>> futures = new ArrayList<>();
+			for (BankCustomerServicePortType client : clients) {
+				futures.add(executor.submit(() -> client.getAccounts(new GetAccountsRequest(), new BankRequestHeader())));
+			}
+
+			Thread.sleep(500);
+
+			// no server thread is waiting for the delay
+			for (StackTraceElement[] stackTrace : Thread.getAllStackTraces().values()) {
+				for (StackTraceElement element : stackTrace) {
+					Assert.assertNotEquals(LatencyInterceptor.class.getName(), element.getClassName());
+				}
+			}
+
+			for (Future<GetAccountsResponse> future : futures) {
+				Assert.assertNotNull(future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
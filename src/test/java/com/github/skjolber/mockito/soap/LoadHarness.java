@@ -0,0 +1,238 @@
+package com.github.skjolber.mockito.soap;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.endpoint.EndpointImpl;
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.jaxws.JaxWsProxyFactoryBean;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+/**
+ * End-to-end load harness: a mocked {@linkplain BankCustomerServicePortType} is published through each of the rules,
+ * the extension and the transports, and driven by concurrent CXF clients. Reports throughput and latency percentiles
+ * per mode and response payload size.
+ * <br><br>
+ * Run the main method, i.e. using
+ * <pre>
+ * mvn test-compile exec:java -Dexec.mainClass=com.github.skjolber.mockito.soap.LoadHarness -Dexec.classpathScope=test
+ * </pre>
+ * Configure using system properties:
+ * <ul>
+ * <li><code>modes</code>: comma-separated subset of <code>server,serverLocal,serverRaw,endpoint,extension</code> (default all)</li>
+ * <li><code>clients</code>: number of concurrent clients (default 8)</li>
+ * <li><code>payloads</code>: comma-separated number of accounts per response (default 1,100,1000)</li>
+ * <li><code>warmup</code>: warmup seconds (default 5)</li>
+ * <li><code>duration</code>: measurement seconds (default 10)</li>
+ * <li><code>output</code>: optional CSV file to append results to</li>
+ * </ul>
+ */
+public class LoadHarness {
+
+	private static final int PORT = 12356;
+
+	private static final String[] MODES = {"server", "serverLocal", "serverRaw", "endpoint", "extension"};
+
+	private static class Result {
+
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final LongAdder errors = new LongAdder();
+	}
+
+	/**
+	 * A published mock, with the bus clients must use (for the local transport).
+	 */
+	private interface Target extends AutoCloseable {
+
+		String getAddress();
+
+		Bus getBus();
+
+		@Override
+		void close();
+	}
+
+	public static void main(String[] args) throws Exception {
+		String[] modes = System.getProperty("modes", String.join(",", MODES)).split(",");
+		int clients = Integer.getInteger("clients", 8);
+		String[] payloads = System.getProperty("payloads", "1,100,1000").split(",");
+		int warmup = Integer.getInteger("warmup", 5);
+		int duration = Integer.getInteger("duration", 10);
+		String output = System.getProperty("output");
+
+		System.out.println(String.format("%-12s %8s %8s %12s %10s %10s %10s %8s", "mode", "payload", "clients", "ops/s", "p50 us", "p99 us", "p999 us", "errors"));
+
+		List<String> lines = new ArrayList<>();
+		for (String mode : modes) {
+			for (String payload : payloads) {
+				GetAccountsResponse response = createResponse(Integer.parseInt(payload.trim()));
+
+				try (Target target = publish(mode.trim(), response)) {
+					run(target, clients, warmup);
+					long time = System.nanoTime();
+					Result result = run(target, clients, duration);
+					double seconds = (System.nanoTime() - time) / 1_000_000_000d;
+
+					double throughput = result.latency.getCount() / seconds;
+					System.out.println(String.format("%-12s %8s %8d %12.0f %10d %10d %10d %8d", mode, payload, clients, throughput, result.latency.getValueAtPercentile(50), result.latency.getValueAtPercentile(99), result.latency.getValueAtPercentile(99.9), result.errors.sum()));
+
+					lines.add(String.join(",", mode, payload, Integer.toString(clients), String.format("%.0f", throughput), Long.toString(result.latency.getValueAtPercentile(50)), Long.toString(result.latency.getValueAtPercentile(99)), Long.toString(result.latency.getValueAtPercentile(99.9)), Long.toString(result.errors.sum())));
+				}
+			}
+		}
+
+		if(output != null) {
+			write(output, lines);
+		}
+	}
+
+	private static GetAccountsResponse createResponse(int accounts) {
+		GetAccountsResponse response = new GetAccountsResponse();
+		for(int i = 0; i < accounts; i++) {
+			response.getAccount().add(Integer.toString(10000000 + i));
+		}
+		return response;
+	}
+
+	private static BankCustomerServicePortType createMock(GetAccountsResponse response) throws Exception {
+		// stub only, so that invocations are not kept during the run
+		BankCustomerServicePortType mock = org.mockito.Mockito.mock(BankCustomerServicePortType.class, withSettings().stubOnly());
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(response);
+		return mock;
+	}
+
+	private static Target publish(String mode, GetAccountsResponse response) throws Exception {
+		BankCustomerServicePortType mock = createMock(response);
+		switch(mode) {
+			case "server":
+			case "serverLocal": {
+				SoapServerRule soap = SoapServerRule.newInstance();
+				String address = mode.equals("server") ? "http://localhost:" + PORT + "/service" : "local://harness/service";
+				soap.proxy(mock, BankCustomerServicePortType.class, address, null, null);
+				Server server = soap.getServer(address);
+				return newTarget(address, ((EndpointImpl)server.getEndpoint()).getBus(), soap::destroy);
+			}
+			case "serverRaw": {
+				// pre-serialized response, without data binding on the server
+				SoapServerRule soap = SoapServerRule.newInstance();
+				String address = "http://localhost:" + PORT + "/service";
+				SoapRawResponses responses = SoapRawResponses.newInstance().respond("getAccountsRequest", SoapRawResponses.envelope(response));
+				soap.proxy(mock, BankCustomerServicePortType.class, address, null, null, SoapServiceRule.properties(SoapRawResponses.PROPERTY, responses));
+				return newTarget(address, null, soap::destroy);
+			}
+			case "endpoint": {
+				SoapEndpointRule soap = SoapEndpointRule.newInstance("harnessPort");
+				soap.before();
+				String address = "http://localhost:" + soap.getPort("harnessPort") + "/service";
+				soap.proxy(mock, BankCustomerServicePortType.class, address, null, null);
+				return newTarget(address, null, soap::destroy);
+			}
+			case "extension": {
+				SoapServiceExtension soap = new SoapServiceExtension();
+				soap.beforeAll(null);
+				soap.beforeEach(null);
+				String address = "http://localhost:" + PORT + "/service";
+				soap.proxy(mock, BankCustomerServicePortType.class, address, null, null);
+				return newTarget(address, null, () -> {
+					try {
+						soap.afterEach(null);
+						soap.afterAll(null);
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+				});
+			}
+			default:
+				throw new IllegalArgumentException("Unknown mode " + mode);
+		}
+	}
+
+	private static Target newTarget(String address, Bus bus, Runnable close) {
+		return new Target() {
+			@Override
+			public String getAddress() {
+				return address;
+			}
+
+			@Override
+			public Bus getBus() {
+				return bus;
+			}
+
+			@Override
+			public void close() {
+				close.run();
+			}
+		};
+	}
+
+	private static Result run(Target target, int clients, int seconds) throws Exception {
+		Result result = new Result();
+		long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+		CountDownLatch latch = new CountDownLatch(clients);
+		for(int i = 0; i < clients; i++) {
+			BankCustomerServicePortType client = createClient(target);
+			Thread thread = new Thread(() -> {
+				GetAccountsRequest request = new GetAccountsRequest();
+				request.setCustomerNumber("123456789");
+				BankRequestHeader header = new BankRequestHeader();
+				header.setSecret("abc");
+				try {
+					while(System.nanoTime() < end) {
+						long time = System.nanoTime();
+						try {
+							client.getAccounts(request, header);
+							result.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - time));
+						} catch(Exception e) {
+							result.errors.increment();
+						}
+					}
+				} finally {
+					latch.countDown();
+				}
+			}, "load-harness-client-" + i);
+			thread.start();
+		}
+		latch.await();
+		return result;
+	}
+
+	private static BankCustomerServicePortType createClient(Target target) {
+		JaxWsProxyFactoryBean factory = new JaxWsProxyFactoryBean();
+		if(target.getBus() != null) {
+			factory.setBus(target.getBus());
+		}
+		factory.setServiceClass(BankCustomerServicePortType.class);
+		factory.setAddress(target.getAddress());
+		return (BankCustomerServicePortType)factory.create();
+	}
+
+	private static void write(String output, List<String> lines) throws IOException {
+		boolean header = !Files.exists(Paths.get(output));
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+			if(header) {
+				writer.println("mode,payload,clients,throughput,p50,p99,p999,errors");
+			}
+			lines.forEach(writer::println);
+		}
+	}
+}
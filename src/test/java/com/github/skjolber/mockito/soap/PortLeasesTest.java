@@ -0,0 +1,71 @@
+package com.github.skjolber.mockito.soap;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PortLeasesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private PortLeases leases1;
+	private PortLeases leases2;
+
+	@Before
+	public void init() throws Exception {
+		File file = new File(folder.getRoot(), PortLeases.FILE_NAME);
+
+		// locks are held per process, but overlapping locks are also detected within a single JVM
+		leases1 = new PortLeases(file);
+		leases2 = new PortLeases(file);
+	}
+
+	@After
+	public void close() {
+		leases1.close();
+		leases2.close();
+	}
+
+	@Test
+	public void testLease() {
+		Assert.assertTrue(leases1.lease(20000));
+		Assert.assertFalse(leases2.lease(20000));
+		Assert.assertTrue(leases2.lease(20001));
+
+		leases1.release(20000);
+
+		Assert.assertTrue(leases2.lease(20000));
+	}
+
+	@Test
+	public void testPortManagerSkipsLeasedPorts() {
+		Assert.assertTrue(leases1.lease(20010));
+
+		PortManager<Object> portManager = new PortManager<Object>(20010, 20011, leases2) {
+			@Override
+			public Object reserve(int port) throws Exception {
+				return new Object();
+			}
+
+			@Override
+			public void release(Object data) {
+			}
+		};
+		portManager.add("leasedPort");
+		portManager.start();
+		try {
+			Assert.assertEquals(20011, portManager.getPort("leasedPort"));
+		} finally {
+			portManager.stop();
+		}
+
+		// released on stop
+		Assert.assertTrue(leases1.lease(20011));
+	}
+}
@@ -0,0 +1,59 @@
+package com.github.skjolber.mockito.soap;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PortManagerTest {
+
+	private PortManager<String> createPortManager(String ... names) {
+		PortManager<String> portManager = new PortManager<String>(20020, 20030) {
+			@Override
+			public String reserve(int port) throws Exception {
+				return "data" + port;
+			}
+
+			@Override
+			public void release(String data) {
+			}
+		};
+		portManager.add(names);
+		return portManager;
+	}
+
+	@Test
+	public void testRegistry() {
+		PortManager<String> portManager = createPortManager("registryPort1", "registryPort2");
+
+		Assert.assertEquals(-1, portManager.getPort("registryPort1"));
+
+		portManager.start();
+		try {
+			Map<String, Integer> ports = portManager.getPorts();
+			Assert.assertEquals(2, ports.size());
+			Assert.assertSame(ports, portManager.getPorts());
+
+			for(Map.Entry<String, Integer> entry : ports.entrySet()) {
+				int port = entry.getValue();
+				Assert.assertTrue(port >= 20020 && port <= 20030);
+				Assert.assertEquals(port, portManager.getPort(entry.getKey()));
+				Assert.assertEquals("data" + port, portManager.getData(port));
+			}
+			Assert.assertNull(portManager.getData(20031));
+		} finally {
+			portManager.stop();
+		}
+		Assert.assertEquals(-1, portManager.getPort("registryPort1"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testImmutablePorts() {
+		createPortManager("registryPort").getPorts().put("registryPort", 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownPort() {
+		createPortManager("registryPort").getPort("unknown");
+	}
+}
@@ -0,0 +1,73 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.validation.Schema;
+
+import org.apache.cxf.endpoint.Server;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+
+import jakarta.xml.ws.WebServiceException;
+
+public class SchemaCacheTest {
+
+	private static final String ADDRESS = "http://localhost:12348/service";
+	private static final List<String> SCHEMA_LOCATIONS = Arrays.asList("classpath:wsdl/BankCustomerService.xsd");
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Test
+	public void testSharedSchema() throws Exception {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS + "1", SCHEMA_LOCATIONS);
+		BankCustomerServicePortType mock = soap.mock(BankCustomerServicePortType.class, ADDRESS + "2", SCHEMA_LOCATIONS);
+
+		Schema schema1 = getSchema(ADDRESS + "1");
+		Schema schema2 = getSchema(ADDRESS + "2");
+
+		Assert.assertNotNull(schema1);
+		Assert.assertSame(schema1, schema2);
+
+		// validation still applies
+		GetAccountsRequest request = new GetAccountsRequest();
+		request.setCustomerNumber("abc");
+		BankRequestHeader header = new BankRequestHeader();
+		header.setSecret("abc");
+
+		try {
+			createClient(ADDRESS + "2").getAccounts(request, header);
+			Assert.fail();
+		} catch(WebServiceException e) {
+			// pass
+		}
+		verifyNoInteractions(mock);
+	}
+
+	@Test
+	public void testValidationDisabled() throws Exception {
+		// make sure to get a fresh service model
+		ServiceModelCache.getInstance().clear();
+		soap.mock(BankCustomerServicePortType.class, ADDRESS);
+
+		Server server = soap.getServer(ADDRESS);
+		SchemaCache.getInstance().apply(server, soap.getBus(), BankCustomerServicePortType.class, null, SCHEMA_LOCATIONS);
+
+		Assert.assertNull(getSchema(ADDRESS));
+	}
+
+	private Schema getSchema(String address) {
+		ServiceInfo serviceInfo = soap.getServer(address).getEndpoint().getService().getServiceInfos().get(0);
+		return serviceInfo.getProperty(Schema.class.getName(), Schema.class);
+	}
+}
@@ -0,0 +1,117 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createHeader;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createRequest;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createResponse;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.Service;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+public class ServiceModelCacheTest {
+
+	private static final String ADDRESS = "http://localhost:12347/service";
+	private static final List<String> SCHEMA_LOCATIONS = Arrays.asList("classpath:wsdl/BankCustomerService.xsd");
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance(true);
+
+	@Test
+	public void testReuseServiceModel() throws Exception {
+		BankCustomerServicePortType mock1 = soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS);
+		Service service1 = getService();
+
+		soap.reset();
+
+		BankCustomerServicePortType mock2 = soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS);
+		Assert.assertSame(service1, getService());
+
+		// calls must go to the new mock
+		GetAccountsResponse mockResponse = new GetAccountsResponse();
+		mockResponse.getAccount().add("1234");
+		when(mock2.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(mockResponse);
+
+		GetAccountsRequest request = new GetAccountsRequest();
+		request.setCustomerNumber("123456789");
+		BankRequestHeader header = new BankRequestHeader();
+		header.setSecret("abc");
+
+		GetAccountsResponse response = createClient(ADDRESS).getAccounts(request, header);
+		assertThat(response.getAccount(), is(mockResponse.getAccount()));
+
+		verify(mock2, times(1)).getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class));
+		verifyNoInteractions(mock1);
+	}
+
+	@Test
+	public void testReuseServiceModelAtDifferentAddress() throws Exception {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS + "1", SCHEMA_LOCATIONS);
+		Service service1 = soap.getServer(ADDRESS + "1").getEndpoint().getService();
+
+		soap.reset();
+
+		BankCustomerServicePortType mock2 = soap.mock(BankCustomerServicePortType.class, ADDRESS + "2", SCHEMA_LOCATIONS);
+		Assert.assertSame(service1, soap.getServer(ADDRESS + "2").getEndpoint().getService());
+
+		when(mock2.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(createResponse("1234"));
+
+		GetAccountsResponse response = createClient(ADDRESS + "2").getAccounts(createRequest("123456789"), createHeader());
+		assertThat(response.getAccount(), is(Arrays.asList("1234")));
+	}
+
+	@Test
+	public void testReuseServiceModelWithDifferentEndpointInstances() throws Exception {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS, properties(SoapRoutes.PROPERTY, SoapRoutes.newInstance(BankCustomerServicePortType.class)));
+		Service service1 = getService();
+
+		soap.reset();
+
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS, properties(SoapRoutes.PROPERTY, SoapRoutes.newInstance(BankCustomerServicePortType.class)));
+		Assert.assertSame(service1, getService());
+	}
+
+	@Test
+	public void testModelShapingPropertiesSplitServiceModels() throws Exception {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS);
+		Service service1 = getService();
+
+		soap.reset();
+
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS, properties(Message.MTOM_ENABLED, Boolean.TRUE));
+		Assert.assertNotSame(service1, getService());
+	}
+
+	@Test
+	public void testLiveEndpointsDoNotShareServiceModel() throws Exception {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS + "1", SCHEMA_LOCATIONS);
+		soap.mock(BankCustomerServicePortType.class, ADDRESS + "2", SCHEMA_LOCATIONS);
+
+		Service service1 = soap.getServer(ADDRESS + "1").getEndpoint().getService();
+		Service service2 = soap.getServer(ADDRESS + "2").getEndpoint().getService();
+
+		Assert.assertNotSame(service1, service2);
+	}
+
+	private Service getService() {
+		return soap.getServer(ADDRESS).getEndpoint().getService();
+	}
+}
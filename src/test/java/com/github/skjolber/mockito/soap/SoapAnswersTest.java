@@ -0,0 +1,163 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createResponse;
+import static com.github.skjolber.mockito.soap.SoapAnswers.async;
+import static com.github.skjolber.mockito.soap.SoapAnswers.delayed;
+import static com.github.skjolber.mockito.soap.SoapAnswers.returnsDelayed;
+import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+public class SoapAnswersTest {
+
+	private static final String ADDRESS = "http://localhost:12351/service";
+
+	private static final String REQUEST = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+			+ "<soap:Header><bankRequestHeader xmlns=\"http://example.bank.skjolber.github.com/v1\"><secret>abc</secret></bankRequestHeader></soap:Header>"
+			+ "<soap:Body><getAccountsRequest xmlns=\"http://example.bank.skjolber.github.com/v1\"><customerNumber>123456789</customerNumber></getAccountsRequest></soap:Body>"
+			+ "</soap:Envelope>";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Test
+	public void testDelayed() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(returnsDelayed(createResponse("1234"), Duration.ofMillis(300)));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+
+		long time = System.currentTimeMillis();
+		assertThat(client.getAccounts(new GetAccountsRequest(), new BankRequestHeader()).getAccount(), is(Arrays.asList("1234")));
+		Assert.assertTrue(System.currentTimeMillis() - time >= 300);
+
+		// mock is not invoked again when the request resumes
+		verify(serviceMock, times(1)).getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class));
+	}
+
+	@Test
+	public void testDelayedFault() throws Exception {
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(delayed(Duration.ofMillis(100), invocation -> {
+			throw createFault(bankException);
+		}));
+
+		try {
+			createClient(ADDRESS).getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+			Assert.fail();
+		} catch(BankException_Exception e) {
+			assertThat(e.getFaultInfo().getCode(), is("myErrorCode"));
+		}
+	}
+
+	@Test
+	public void testDelayedWithLatency() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(
+				Latency.PROPERTY, Latency.fixed(Duration.ofMillis(100))
+				));
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(returnsDelayed(createResponse("1234"), Duration.ofMillis(100)));
+
+		long time = System.currentTimeMillis();
+		assertThat(createClient(ADDRESS).getAccounts(new GetAccountsRequest(), new BankRequestHeader()).getAccount(), is(Arrays.asList("1234")));
+		Assert.assertTrue(System.currentTimeMillis() - time >= 200);
+	}
+
+	@Test
+	public void testAsync() throws Exception {
+		CompletableFuture<GetAccountsResponse> future = new CompletableFuture<>();
+
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(async(invocation -> future));
+
+		CompletableFuture<GetAccountsResponse> response = CompletableFuture.supplyAsync(() -> {
+			try {
+				return createClient(ADDRESS).getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		Thread.sleep(200);
+		Assert.assertFalse(response.isDone());
+
+		future.complete(createResponse("5678"));
+
+		assertThat(response.get(10, TimeUnit.SECONDS).getAccount(), is(Arrays.asList("5678")));
+	}
+
+	@Test
+	public void testManyConcurrentDelayed() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(returnsDelayed(createResponse("1234"), Duration.ofMillis(1000)));
+
+		HttpClient client = HttpClient.newHttpClient();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(ADDRESS))
+				.header("Content-Type", "text/xml")
+				.POST(HttpRequest.BodyPublishers.ofString(REQUEST))
+				.build();
+
+		List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+		for(int i = 0; i < 100; i++) {
+			responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+		}
+
+		Thread.sleep(500);
+
+		// no server thread is waiting for the delay
+		for (StackTraceElement[] stackTrace : Thread.getAllStackTraces().values()) {
+			for (StackTraceElement element : stackTrace) {
+				Assert.assertNotEquals(SoapAnswers.class.getName(), element.getClassName());
+			}
+		}
+
+		for (CompletableFuture<HttpResponse<String>> response : responses) {
+			HttpResponse<String> httpResponse = response.get(30, TimeUnit.SECONDS);
+			assertThat(httpResponse.statusCode(), is(200));
+			assertThat(httpResponse.body(), containsString("<account>1234</account>"));
+		}
+	}
+
+	@Test
+	public void testDirect() throws Exception {
+		BankCustomerServicePortType serviceMock = mock(BankCustomerServicePortType.class);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(returnsDelayed(createResponse("1234"), Duration.ofMillis(100)));
+
+		long time = System.currentTimeMillis();
+		assertThat(serviceMock.getAccounts(new GetAccountsRequest(), new BankRequestHeader()).getAccount(), is(Arrays.asList("1234")));
+		Assert.assertTrue(System.currentTimeMillis() - time >= 100);
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+import jakarta.xml.ws.WebServiceException;
+
+public class SoapDirectClientTest {
+
+	private BankCustomerServicePortType mock = mock(BankCustomerServicePortType.class);
+
+	@Test
+	public void testCopies() throws Exception {
+		BankCustomerServicePortType client = SoapDirectClient.newInstance(mock, BankCustomerServicePortType.class);
+
+		GetAccountsResponse mockResponse = new GetAccountsResponse();
+		mockResponse.getAccount().add("1234");
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(mockResponse);
+
+		GetAccountsRequest request = new GetAccountsRequest();
+		request.setCustomerNumber("123456789");
+		BankRequestHeader header = new BankRequestHeader();
+		header.setSecret("abc");
+
+		GetAccountsResponse response = client.getAccounts(request, header);
+		assertThat(response.getAccount(), is(mockResponse.getAccount()));
+		Assert.assertNotSame(mockResponse, response);
+
+		ArgumentCaptor<GetAccountsRequest> argument1 = ArgumentCaptor.forClass(GetAccountsRequest.class);
+		ArgumentCaptor<BankRequestHeader> argument2 = ArgumentCaptor.forClass(BankRequestHeader.class);
+		verify(mock).getAccounts(argument1.capture(), argument2.capture());
+
+		Assert.assertNotSame(request, argument1.getValue());
+		assertThat(argument1.getValue().getCustomerNumber(), is("123456789"));
+		Assert.assertNotSame(header, argument2.getValue());
+		assertThat(argument2.getValue().getSecret(), is("abc"));
+	}
+
+	@Test
+	public void testValidation() throws Exception {
+		BankCustomerServicePortType client = SoapDirectClient.newInstance(mock, BankCustomerServicePortType.class, Arrays.asList("classpath:wsdl/BankCustomerService.xsd"));
+
+		GetAccountsRequest request = new GetAccountsRequest();
+		request.setCustomerNumber("abc"); // must be all numbers
+		BankRequestHeader header = new BankRequestHeader();
+		header.setSecret("abc");
+
+		try {
+			client.getAccounts(request, header);
+			Assert.fail();
+		} catch(WebServiceException e) {
+			// pass
+		}
+		verifyNoInteractions(mock);
+	}
+
+	@Test
+	public void testFault() throws Exception {
+		BankCustomerServicePortType client = SoapDirectClient.newInstance(mock, BankCustomerServicePortType.class);
+
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenThrow(createFault(bankException));
+
+		try {
+			client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+			Assert.fail();
+		} catch(BankException_Exception e) {
+			assertThat(e.getFaultInfo().getCode(), is("myErrorCode"));
+		}
+	}
+
+	@Test
+	public void testFaultWithoutDetail() throws Exception {
+		BankCustomerServicePortType client = SoapDirectClient.newInstance(mock, BankCustomerServicePortType.class);
+
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenThrow(createFault());
+
+		try {
+			client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+			Assert.fail();
+		} catch(WebServiceException e) {
+			// pass
+		}
+	}
+}
@@ -1,16 +1,26 @@
 package com.github.skjolber.mockito.soap;
 
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
+import javax.net.ServerSocketFactory;
+
+import org.apache.cxf.Bus;
 import org.apache.cxf.helpers.IOUtils;
 import org.junit.Assert;
 import org.junit.Rule;
@@ -18,6 +28,9 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
 import com.github.skjolber.mockito.soap.PortManager;
 import com.github.skjolber.mockito.soap.SoapEndpointRule;
 import com.github.skjolber.mockito.soap.SoapServiceRule;
@@ -155,4 +168,107 @@ public class SoapEndpointRuleTest {
 		}
 	}
 
+	@Test
+	public void testPortRangeSkipsTakenPorts() throws IOException {
+		// occupy all but one of the ports in the range; below the ephemeral port range, so client connections of other tests do not interfere
+		int start = 31000;
+		int end = start + 4;
+
+		List<ServerSocket> sockets = new ArrayList<>();
+		try {
+			for(int port = start; port < end; port++) {
+				sockets.add(ServerSocketFactory.getDefault().createServerSocket(port, 1, InetAddress.getByName("localhost")));
+			}
+			SoapEndpointRule soap = SoapEndpointRule.newInstance(start, end, "port");
+			soap.before();
+			try {
+				Assert.assertEquals(end, soap.getPort("port"));
+			} finally {
+				soap.after();
+			}
+		} finally {
+			for(ServerSocket socket : sockets) {
+				socket.close();
+			}
+		}
+	}
+
+	@Test
+	public void testPortRangeReservationFailureReleasesPorts() throws IOException {
+		// below the ephemeral port range, so client connections of other tests do not interfere
+		int start = 31010;
+		int end = start + 2;
+
+		String[] portNames = { "failurePort1", "failurePort2", "failurePort3" };
+		try (ServerSocket socket = ServerSocketFactory.getDefault().createServerSocket(start + 1, 1, InetAddress.getByName("localhost"))) {
+			SoapEndpointRule soap = SoapEndpointRule.newInstance(start, end, portNames);
+			try {
+				soap.before();
+				Assert.fail();
+			} catch(RuntimeException e) {
+				assertThat(e.getMessage(), containsString("Unable to reserve port"));
+			}
+			for(String portName : portNames) {
+				Assert.assertNull(System.getProperty(portName));
+				Assert.assertEquals(-1, soap.getPort(portName));
+			}
+			Assert.assertTrue(PortManager.isPortAvailable(start));
+			Assert.assertTrue(PortManager.isPortAvailable(end));
+		}
+	}
+
+	@Test
+	public void testSharedBus() throws IOException {
+		SoapEndpointRule soap = SoapEndpointRule.newInstance("sharedPort1", "sharedPort2");
+		soap.before();
+
+		Bus bus = soap.getBus();
+		try {
+			for (Integer port : soap.getPorts().values()) {
+				String address = "http://localhost:" + port + "/service";
+				soap.mock(BankCustomerServicePortType.class, address);
+				try (InputStream in = new URL(address + "?wsdl").openStream()) {
+					assertThat(IOUtils.toString(in), containsString("wsdl:definitions"));
+				}
+			}
+			Assert.assertSame(bus, soap.getBus());
+		} finally {
+			soap.after();
+		}
+		Assert.assertEquals(Bus.BusState.SHUTDOWN, bus.getState());
+	}
+
+	@Test
+	public void testLocalPorts() throws Exception {
+		SoapEndpointRule soap = SoapEndpointRule.newLocalInstance("localPort");
+		soap.before();
+		try {
+			int port = soap.getPort("localPort");
+			Assert.assertTrue(port > 0);
+			Assert.assertEquals(Integer.toString(port), System.getProperty("localPort"));
+
+			// multiple services on the same logical port
+			String address1 = "local://localhost:" + port + "/service1";
+			String address2 = "local://localhost:" + port + "/service2";
+
+			BankCustomerServicePortType mock1 = soap.mock(BankCustomerServicePortType.class, address1);
+			BankCustomerServicePortType mock2 = soap.mock(BankCustomerServicePortType.class, address2);
+
+			GetAccountsResponse response = new GetAccountsResponse();
+			response.getAccount().add("1234");
+			when(mock2.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(response);
+
+			BankCustomerServicePortType client = createClient(address2);
+
+			GetAccountsRequest request = new GetAccountsRequest();
+			request.setCustomerNumber("123");
+			Assert.assertEquals(response.getAccount(), client.getAccounts(request, new BankRequestHeader()).getAccount());
+
+			verifyNoInteractions(mock1);
+		} finally {
+			soap.after();
+		}
+		Assert.assertNull(System.getProperty("localPort"));
+	}
+
 }
@@ -0,0 +1,103 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class SoapFlightRecorderTest {
+
+	private static final String ADDRESS = "http://localhost:12355/service";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testEvents() throws Exception {
+		// payload sizes are counted by the metrics
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapFlightRecorder.PROPERTY, true));
+
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class)))
+			.thenReturn(new GetAccountsResponse())
+			.thenThrow(createFault(bankException));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+
+		// warm up without recording
+		client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+
+		Path file = folder.newFile("recording.jfr").toPath();
+		try (Recording recording = new Recording()) {
+			recording.enable("com.github.skjolber.mockito.soap.*");
+			recording.start();
+
+			try {
+				client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+				Assert.fail();
+			} catch(BankException_Exception e) {
+				// expected
+			}
+
+			recording.stop();
+			recording.dump(file);
+		}
+
+		Map<String, RecordedEvent> events = new HashMap<>();
+		List<RecordedEvent> recordedEvents = RecordingFile.readAllEvents(file);
+		for (RecordedEvent event : recordedEvents) {
+			String name = event.getEventType().getName();
+			if(name.startsWith("com.github.skjolber.mockito.soap.")) {
+				Assert.assertNull(name, events.put(name.substring(33), event));
+
+				assertThat(event.getString("address"), is(ADDRESS));
+				assertThat(event.getString("operation"), is("getAccounts"));
+			}
+		}
+
+		assertThat(events.keySet().size(), is(5));
+
+		RecordedEvent request = events.get("Request");
+		Assert.assertTrue(request.getBoolean("fault"));
+		Assert.assertTrue(request.getLong("requestBytes") > 0);
+		Assert.assertTrue(request.getLong("responseBytes") > 0);
+		Assert.assertTrue(request.getDuration().compareTo(events.get("Invocation").getDuration()) >= 0);
+
+		Assert.assertTrue(events.get("Unmarshal").getLong("requestBytes") > 0);
+		Assert.assertTrue(events.get("Marshal").getLong("responseBytes") > 0);
+		Assert.assertTrue(events.get("Marshal").getBoolean("fault"));
+
+		Assert.assertNotNull(events.get("Fault").getString("faultCode"));
+		Assert.assertNotNull(events.get("Fault").getString("message"));
+	}
+}
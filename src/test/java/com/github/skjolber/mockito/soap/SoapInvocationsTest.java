@@ -0,0 +1,133 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+public class SoapInvocationsTest {
+
+	private static final String ADDRESS = "http://localhost:12357/service";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Test
+	public void testBoundedRecording() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapInvocations.PROPERTY, 4));
+
+		GetAccountsResponse response = new GetAccountsResponse();
+		response.getAccount().add("1234");
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(response);
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		for(int i = 0; i < 10; i++) {
+			GetAccountsRequest request = new GetAccountsRequest();
+			request.setCustomerNumber(Integer.toString(i));
+			assertThat(client.getAccounts(request, new BankRequestHeader()).getAccount().get(0), is("1234"));
+		}
+
+		SoapInvocations invocations = soap.invocations(ADDRESS);
+		invocations.verify("getAccounts", 10);
+		assertThat(invocations.getCount(), is(10L));
+
+		List<SoapInvocations.Invocation> recent = invocations.getInvocations("getAccounts");
+		assertThat(recent.size(), is(4));
+		for(int i = 0; i < recent.size(); i++) {
+			assertThat(recent.get(i).getSequence(), is(6L + i));
+			assertThat(recent.get(i).getArgument(GetAccountsRequest.class).getCustomerNumber(), is(Integer.toString(6 + i)));
+		}
+		assertThat(invocations.getLastArgument("getAccounts", GetAccountsRequest.class).getCustomerNumber(), is("9"));
+
+		// the mock itself does not keep invocations
+		Assert.assertTrue(mockingDetails(serviceMock).getInvocations().isEmpty());
+
+		try {
+			invocations.verify("getAccounts", 9);
+			Assert.fail();
+		} catch(AssertionError e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testClearedOnReset() {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapInvocations.PROPERTY, 4));
+		Assert.assertNotNull(soap.invocations(ADDRESS));
+
+		soap.reset();
+
+		Assert.assertNull(soap.invocations(ADDRESS));
+	}
+
+	@Test
+	public void testNotEnabled() {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS);
+
+		Assert.assertNull(soap.invocations(ADDRESS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidProperty() {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapInvocations.PROPERTY, "many"));
+	}
+
+	@Test
+	public void testCapacity() {
+		assertThat(new SoapInvocations(BankCustomerServicePortType.class, 1).getCapacity(), is(1));
+		assertThat(new SoapInvocations(BankCustomerServicePortType.class, 2).getCapacity(), is(2));
+		assertThat(new SoapInvocations(BankCustomerServicePortType.class, 3).getCapacity(), is(4));
+		assertThat(new SoapInvocations(BankCustomerServicePortType.class, 128).getCapacity(), is(128));
+	}
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		SoapInvocations invocations = new SoapInvocations(BankCustomerServicePortType.class, 100);
+		assertThat(invocations.getCapacity(), is(128));
+
+		Method method = BankCustomerServicePortType.class.getMethod("getAccounts", GetAccountsRequest.class, BankRequestHeader.class);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for(int i = 0; i < 4; i++) {
+				futures.add(executor.submit(() -> {
+					for(int k = 0; k < 10000; k++) {
+						invocations.record(method, new Object[] {new GetAccountsRequest(), new BankRequestHeader()});
+						invocations.getInvocations();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		invocations.verify("getAccounts", 40000);
+
+		List<SoapInvocations.Invocation> recent = invocations.getInvocations();
+		assertThat(recent.size(), is(128));
+		assertThat(recent.get(recent.size() - 1).getSequence(), is(39999L));
+	}
+}
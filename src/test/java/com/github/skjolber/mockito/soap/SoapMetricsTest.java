@@ -0,0 +1,134 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+public class SoapMetricsTest {
+
+	private static final String ADDRESS = "http://localhost:12354/service";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testHistogram() {
+		for(long value = 0; value < 100_000_000L; value = value * 2 + 1) {
+			int index = LatencyHistogram.getIndex(value);
+			Assert.assertTrue(LatencyHistogram.getLowestValue(index) <= value);
+			Assert.assertTrue(LatencyHistogram.getHighestValue(index) >= value);
+			Assert.assertTrue(LatencyHistogram.getHighestValue(index) - LatencyHistogram.getLowestValue(index) <= value / 32);
+		}
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 1000; i++) {
+			histogram.record(i * 10);
+		}
+		assertThat(histogram.getCount(), is(1000L));
+		assertThat(histogram.getMax(), is(10000L));
+
+		long median = histogram.getValueAtPercentile(50);
+		Assert.assertTrue(Math.abs(median - 5000) <= 5000 / 32);
+		assertThat(histogram.getValueAtPercentile(100), is(10000L));
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(
+				Latency.PROPERTY, Latency.fixed(Duration.ofMillis(50)),
+				SoapMetrics.PROPERTY, true
+				));
+
+		GetAccountsResponse response = new GetAccountsResponse();
+		response.getAccount().add("1234");
+
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class)))
+			.thenReturn(response, response, response)
+			.thenThrow(createFault(bankException));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		for(int i = 0; i < 3; i++) {
+			client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+		}
+		try {
+			client.getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+			Assert.fail();
+		} catch(BankException_Exception e) {
+			// expected
+		}
+
+		SoapMetrics metrics = soap.metrics(ADDRESS);
+		assertThat(metrics.getRequestCount(), is(4L));
+		assertThat(metrics.getFaultCount(), is(1L));
+
+		OperationMetrics operation = metrics.getOperation("getAccounts");
+		assertThat(operation.getRequestCount(), is(4L));
+		assertThat(operation.getFaultCount(), is(1L));
+		Assert.assertTrue(operation.getRequestBytes() > 0);
+		Assert.assertTrue(operation.getResponseBytes() > 0);
+		Assert.assertTrue(operation.getLatency(50) >= 50_000);
+		Assert.assertTrue(operation.getMaxLatency() >= operation.getLatency(99));
+
+		assertThat(metrics.toJson(), containsString("\"getAccounts\":{\"requests\":4,\"faults\":1,"));
+	}
+
+	@Test
+	public void testNotEnabled() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(new GetAccountsResponse());
+
+		createClient(ADDRESS).getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+
+		Assert.assertNull(soap.metrics(ADDRESS));
+	}
+
+	@Test
+	public void testDump() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapMetrics.PROPERTY, true));
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(new GetAccountsResponse());
+
+		createClient(ADDRESS).getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+
+		System.setProperty(SoapMetrics.DIRECTORY_PROPERTY, folder.getRoot().getAbsolutePath());
+		try {
+			soap.destroy();
+		} finally {
+			System.clearProperty(SoapMetrics.DIRECTORY_PROPERTY);
+		}
+
+		Path[] files = Files.list(folder.getRoot().toPath()).toArray(Path[]::new);
+		assertThat(files.length, is(1));
+
+		String json = new String(Files.readAllBytes(files[0]), StandardCharsets.UTF_8);
+		assertThat(json, containsString("{\"" + ADDRESS + "\":{\"getAccounts\":{\"requests\":1,"));
+	}
+}
@@ -0,0 +1,179 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createRequest;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createResponse;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.validation.Schema;
+
+import org.apache.cxf.binding.soap.Soap12;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+
+import jakarta.xml.ws.WebServiceException;
+
+public class SoapRawResponsesTest {
+
+	private static final String ADDRESS = "http://localhost:12362/service";
+
+	private static final List<String> SCHEMA_LOCATIONS = Arrays.asList("classpath:wsdl/BankCustomerService.xsd");
+
+	private static final String FAULT = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body><soap:Fault>"
+			+ "<faultcode>soap:Server</faultcode><faultstring>myErrorMessage</faultstring>"
+			+ "<detail><bankException xmlns=\"http://example.bank.skjolber.github.com/v1\"><code>myErrorCode</code><message>myErrorMessage</message></bankException></detail>"
+			+ "</soap:Fault></soap:Body></soap:Envelope>";
+
+	private static final String SOAP_12_REQUEST = "<soap:Envelope xmlns:soap=\"http://www.w3.org/2003/05/soap-envelope\"><soap:Body>"
+			+ "<getAccountsRequest xmlns=\"http://example.bank.skjolber.github.com/v1\"><customerNumber>1</customerNumber></getAccountsRequest>"
+			+ "</soap:Body></soap:Envelope>";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Test
+	public void testRawResponses() throws Exception {
+		GetAccountsRequest special = createRequest("2");
+
+		SoapRawResponses responses = SoapRawResponses.newInstance()
+			.respond("getAccountsRequest", SoapRawResponses.envelope(createResponse("1111")))
+			.respond(requestEnvelope(special), SoapRawResponses.Response.ok(SoapRawResponses.envelope(createResponse("2222"))));
+
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRawResponses.PROPERTY, responses));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		assertThat(client.getAccounts(createRequest("1"), new BankRequestHeader()).getAccount().get(0), is("1111"));
+		assertThat(client.getAccounts(createRequest("2"), new BankRequestHeader()).getAccount().get(0), is("2222"));
+
+		verify(serviceMock, never()).getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class));
+		assertThat(responses.getHits(), is(2L));
+	}
+
+	@Test
+	public void testHandler() throws Exception {
+		SoapRawResponses responses = SoapRawResponses.newInstance().handler((operation, request) -> {
+			String xml = new String(request, StandardCharsets.UTF_8);
+			if(xml.contains(">3<")) {
+				return SoapRawResponses.Response.fault(FAULT.getBytes(StandardCharsets.UTF_8));
+			}
+			return null;
+		});
+
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRawResponses.PROPERTY, responses));
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(createResponse("9999"));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		try {
+			client.getAccounts(createRequest("3"), new BankRequestHeader());
+			Assert.fail();
+		} catch(BankException_Exception e) {
+			assertThat(e.getFaultInfo().getCode(), is("myErrorCode"));
+		}
+
+		// falls through to the mock
+		assertThat(client.getAccounts(createRequest("4"), new BankRequestHeader()).getAccount().get(0), is("9999"));
+		verify(serviceMock, times(1)).getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class));
+
+		assertThat(responses.getHits(), is(1L));
+		assertThat(responses.getMisses(), is(1L));
+	}
+
+	@Test
+	public void testSchemaValidation() throws Exception {
+		SoapRawResponses responses = SoapRawResponses.newInstance()
+			.respond("getAccountsRequest", SoapRawResponses.envelope(createResponse("1111")));
+
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS, properties(SoapRawResponses.PROPERTY, responses));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		assertThat(client.getAccounts(createRequest("1"), new BankRequestHeader()).getAccount().get(0), is("1111"));
+
+		try {
+			// customer number must be numeric
+			client.getAccounts(createRequest("abc"), new BankRequestHeader());
+			Assert.fail();
+		} catch(WebServiceException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("customerNumberType"));
+		}
+		assertThat(responses.getHits(), is(1L));
+	}
+
+	@Test
+	public void testSoap12() throws Exception {
+		SoapRawResponses responses = SoapRawResponses.newInstance()
+			.respond("getAccountsRequest", SoapRawResponses.envelope(createResponse("1111"), Soap12.getInstance()));
+
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRawResponses.PROPERTY, responses));
+
+		HttpResponse<String> response = post(SOAP_12_REQUEST, "application/soap+xml");
+		assertThat(response.statusCode(), is(200));
+		Assert.assertTrue(response.headers().firstValue("Content-Type").get().startsWith("application/soap+xml"));
+		Assert.assertTrue(response.body(), response.body().contains("1111"));
+	}
+
+	@Test
+	public void testVersionMismatch() throws Exception {
+		// SOAP 1.1 response
+		SoapRawResponses responses = SoapRawResponses.newInstance()
+			.respond("getAccountsRequest", SoapRawResponses.envelope(createResponse("1111")));
+
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRawResponses.PROPERTY, responses));
+
+		HttpResponse<String> response = post(SOAP_12_REQUEST, "application/soap+xml");
+		assertThat(response.statusCode(), is(500));
+		Assert.assertTrue(response.body(), response.body().contains("VersionMismatch"));
+		assertThat(responses.getHits(), is(0L));
+	}
+
+	@Test
+	public void testSchemaNotCompiledWithoutValidation() throws Exception {
+		// make sure to get a fresh service model
+		ServiceModelCache.getInstance().clear();
+
+		SoapRawResponses responses = SoapRawResponses.newInstance()
+			.respond("getAccountsRequest", SoapRawResponses.envelope(createResponse("1111")));
+
+		soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRawResponses.PROPERTY, responses));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		assertThat(client.getAccounts(createRequest("1"), new BankRequestHeader()).getAccount().get(0), is("1111"));
+
+		ServiceInfo serviceInfo = soap.getServer(ADDRESS).getEndpoint().getService().getServiceInfos().get(0);
+		Assert.assertNull(serviceInfo.getProperty(Schema.class.getName(), Schema.class));
+	}
+
+	private static HttpResponse<String> post(String envelope, String contentType) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(ADDRESS))
+				.header("Content-Type", contentType + "; charset=UTF-8")
+				.POST(HttpRequest.BodyPublishers.ofString(envelope))
+				.build();
+		return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private static byte[] requestEnvelope(GetAccountsRequest request) {
+		// note: different prefixes than the client, which is fine as requests are compared in canonical form
+		return SoapRawResponses.envelope(request);
+	}
+}
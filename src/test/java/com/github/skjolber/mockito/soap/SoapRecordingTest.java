@@ -0,0 +1,184 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createRequest;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createResponse;
+import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+
+public class SoapRecordingTest {
+
+	private static final String UPSTREAM_ADDRESS = "http://localhost:12358/service";
+	private static final String ADDRESS = "http://localhost:12359/service";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	private Path file;
+
+	@Before
+	public void createFile() throws Exception {
+		file = Files.createTempFile("soap-recording-", ".bin");
+		Files.delete(file);
+	}
+
+	@After
+	public void deleteFile() throws Exception {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testRecordAndReplay() throws Exception {
+		// record
+		BankCustomerServicePortType upstream = soap.mock(BankCustomerServicePortType.class, UPSTREAM_ADDRESS);
+		when(upstream.getAccounts(argThat(r -> r != null && "1".equals(r.getCustomerNumber())), any(BankRequestHeader.class))).thenReturn(createResponse("1111"));
+		when(upstream.getAccounts(argThat(r -> r != null && "2".equals(r.getCustomerNumber())), any(BankRequestHeader.class))).thenReturn(createResponse("2222"));
+
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+		when(upstream.getAccounts(argThat(r -> r != null && "3".equals(r.getCustomerNumber())), any(BankRequestHeader.class))).thenThrow(createFault(bankException));
+
+		SoapRecording recording = SoapRecording.record(file, UPSTREAM_ADDRESS);
+		BankCustomerServicePortType recordingMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRecording.PROPERTY, recording));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		assertThat(client.getAccounts(createRequest("1"), new BankRequestHeader()).getAccount().get(0), is("1111"));
+		assertThat(client.getAccounts(createRequest("2"), new BankRequestHeader()).getAccount().get(0), is("2222"));
+		try {
+			client.getAccounts(createRequest("3"), new BankRequestHeader());
+			Assert.fail();
+		} catch(BankException_Exception e) {
+			assertThat(e.getFaultInfo().getCode(), is("myErrorCode"));
+		}
+		assertThat(recording.getRecorded(), is(3L));
+		verify(recordingMock, never()).getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class));
+
+		// replay, without upstream
+		soap.reset();
+
+		SoapRecording replay = SoapRecording.replay(file);
+		BankCustomerServicePortType replayMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRecording.PROPERTY, replay));
+		when(replayMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(createResponse("9999"));
+
+		client = createClient(ADDRESS);
+		assertThat(client.getAccounts(createRequest("2"), new BankRequestHeader()).getAccount().get(0), is("2222"));
+		assertThat(client.getAccounts(createRequest("1"), new BankRequestHeader()).getAccount().get(0), is("1111"));
+		try {
+			client.getAccounts(createRequest("3"), new BankRequestHeader());
+			Assert.fail();
+		} catch(BankException_Exception e) {
+			assertThat(e.getFaultInfo().getMessage(), is("myErrorMessage"));
+		}
+		// not recorded
+		assertThat(client.getAccounts(createRequest("4"), new BankRequestHeader()).getAccount().get(0), is("9999"));
+
+		assertThat(replay.getHits(), is(3L));
+		assertThat(replay.getMisses(), is(1L));
+	}
+
+	@Test
+	public void testCanonicalKey() throws Exception {
+		String a = "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Header><h>1</h></soap:Header><soap:Body>"
+				+ "<ns2:getAccountsRequest xmlns:ns2=\"http://example.com/v1\" a=\"1\" b=\"2\"><customerNumber>123</customerNumber></ns2:getAccountsRequest>"
+				+ "</soap:Body></soap:Envelope>";
+		String b = "<S:Envelope xmlns:S=\"http://schemas.xmlsoap.org/soap/envelope/\">\n  <S:Body>\n"
+				+ "    <v1:getAccountsRequest b=\"2\" a=\"1\" xmlns:v1=\"http://example.com/v1\">\n      <customerNumber> 123 </customerNumber>\n    </v1:getAccountsRequest>\n"
+				+ "  </S:Body>\n</S:Envelope>";
+		String c = a.replace("123", "124");
+
+		RawMessages.RequestKey keyA = RawMessages.canonicalKey(a.getBytes(StandardCharsets.UTF_8));
+		RawMessages.RequestKey keyB = RawMessages.canonicalKey(b.getBytes(StandardCharsets.UTF_8));
+		RawMessages.RequestKey keyC = RawMessages.canonicalKey(c.getBytes(StandardCharsets.UTF_8));
+
+		assertThat(keyA.getOperation(), is("{http://example.com/v1}getAccountsRequest"));
+		assertThat(keyA.getHash(), is(keyB.getHash()));
+		Assert.assertNotEquals(keyA.getHash(), keyC.getHash());
+	}
+
+	@Test
+	public void testHashCollisionMisses() throws Exception {
+		byte[] a = ("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+				+ "<ns2:getAccountsRequest xmlns:ns2=\"http://example.com/v1\"><customerNumber>123</customerNumber></ns2:getAccountsRequest>"
+				+ "</soap:Body></soap:Envelope>").getBytes(StandardCharsets.UTF_8);
+		byte[] b = ("<S:Envelope xmlns:S=\"http://schemas.xmlsoap.org/soap/envelope/\"><S:Body>"
+				+ "<v1:getAccountsRequest xmlns:v1=\"http://example.com/v1\"><customerNumber>123</customerNumber></v1:getAccountsRequest>"
+				+ "</S:Body></S:Envelope>").getBytes(StandardCharsets.UTF_8);
+		byte[] c = new String(a, StandardCharsets.UTF_8).replace("123", "124").getBytes(StandardCharsets.UTF_8);
+
+		RawMessages.RequestKey keyA = RawMessages.canonicalKey(a);
+		RecordingFile.append(file, keyA, 200, "text/xml", a, "response".getBytes(StandardCharsets.UTF_8));
+
+		RecordingFile recording = new RecordingFile(file);
+		Assert.assertNotNull(recording.get(keyA, a));
+		// same canonical form
+		Assert.assertNotNull(recording.get(RawMessages.canonicalKey(b), b));
+
+		// another request with the same 64-bit hash
+		byte[] digest = new byte[32];
+		ByteBuffer.wrap(digest).putLong(keyA.getHash());
+		RawMessages.RequestKey collision = new RawMessages.RequestKey(keyA.getOperation(), digest);
+		assertThat(collision.getHash(), is(keyA.getHash()));
+		Assert.assertNull(recording.get(collision, c));
+	}
+
+	@Test
+	public void testConcurrentAppend() throws Exception {
+		int count = 64;
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for(int i = 0; i < count; i++) {
+				byte[] request = ("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>"
+						+ "<getAccountsRequest><customerNumber>" + i + "</customerNumber></getAccountsRequest>"
+						+ "</soap:Body></soap:Envelope>").getBytes(StandardCharsets.UTF_8);
+				futures.add(executor.submit(() -> {
+					RecordingFile.append(file, RawMessages.canonicalKey(request), 200, "text/xml", request, request);
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		// a single magic number and no interleaved records
+		assertThat(new RecordingFile(file).size(), is(count));
+	}
+
+	@Test(expected = java.io.IOException.class)
+	public void testReplayInvalidFile() throws Exception {
+		Files.write(file, new byte[] {1, 2, 3, 4, 5});
+		SoapRecording.replay(file);
+	}
+}
@@ -0,0 +1,79 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createRequest;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createHeader;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+import jakarta.xml.ws.WebServiceException;
+
+public class SoapResponseCacheTest {
+
+	private static final String ADDRESS = "http://localhost:12349/service";
+	private static final List<String> SCHEMA_LOCATIONS = Arrays.asList("classpath:wsdl/BankCustomerService.xsd");
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Test
+	public void testCachedResponse() throws Exception {
+		BankCustomerServicePortType mock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapResponseCache.PROPERTY, true));
+
+		GetAccountsResponse mockResponse = new GetAccountsResponse();
+		mockResponse.getAccount().add("1234");
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(mockResponse);
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+
+		assertThat(client.getAccounts(createRequest("123456789"), createHeader()).getAccount(), is(Arrays.asList("1234")));
+
+		// same instance, so previously serialized content is returned
+		mockResponse.getAccount().add("5678");
+		assertThat(client.getAccounts(createRequest("123456789"), createHeader()).getAccount(), is(Arrays.asList("1234")));
+
+		// new instance is serialized
+		GetAccountsResponse otherResponse = new GetAccountsResponse();
+		otherResponse.getAccount().add("5678");
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(otherResponse);
+
+		assertThat(client.getAccounts(createRequest("123456789"), createHeader()).getAccount(), is(Arrays.asList("5678")));
+	}
+
+	@Test
+	public void testCachedResponseWithValidation() throws Exception {
+		BankCustomerServicePortType mock = soap.mock(BankCustomerServicePortType.class, ADDRESS, SCHEMA_LOCATIONS, properties(SoapResponseCache.PROPERTY, true));
+
+		GetAccountsResponse mockResponse = new GetAccountsResponse();
+		mockResponse.getAccount().add("1234");
+		when(mock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(mockResponse);
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		for(int i = 0; i < 3; i++) {
+			assertThat(client.getAccounts(createRequest("123456789"), createHeader()).getAccount(), is(Arrays.asList("1234")));
+		}
+
+		// requests are still validated
+		try {
+			client.getAccounts(createRequest("abc"), createHeader());
+			Assert.fail();
+		} catch(WebServiceException e) {
+			// pass
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createRequest;
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createResponse;
+import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static com.github.skjolber.mockito.soap.SoapServiceRule.properties;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankException;
+import com.github.skjolber.bank.example.v1.BankException_Exception;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+
+public class SoapRoutesTest {
+
+	private static final String ADDRESS = "http://localhost:12361/service";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance();
+
+	@Test
+	public void testRouteByFunction() throws Exception {
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRoutes.PROPERTY, true));
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(createResponse("fallback"));
+
+		BankException bankException = new BankException();
+		bankException.setCode("myErrorCode");
+		bankException.setMessage("myErrorMessage");
+
+		SoapRoutes.Route<GetAccountsRequest> route = soap.<BankCustomerServicePortType>routes(ADDRESS).route("getAccounts", GetAccountsRequest.class, GetAccountsRequest::getCustomerNumber);
+		for(int i = 0; i < 500; i++) {
+			route.respond(Integer.toString(i), createResponse("account" + i));
+		}
+		route.fault("error", createFault(bankException));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		assertThat(client.getAccounts(createRequest("0"), new BankRequestHeader()).getAccount().get(0), is("account0"));
+		assertThat(client.getAccounts(createRequest("499"), new BankRequestHeader()).getAccount().get(0), is("account499"));
+		assertThat(client.getAccounts(createRequest("500"), new BankRequestHeader()).getAccount().get(0), is("fallback"));
+		try {
+			client.getAccounts(createRequest("error"), new BankRequestHeader());
+			Assert.fail();
+		} catch(BankException_Exception e) {
+			assertThat(e.getFaultInfo().getCode(), is("myErrorCode"));
+		}
+
+		// only the unrouted request reaches the mock
+		verify(serviceMock, times(1)).getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class));
+		verify(serviceMock, times(1)).getAccounts(argThat(r -> "500".equals(r.getCustomerNumber())), any(BankRequestHeader.class));
+
+		// routes can be modified while running
+		route.remove("0");
+		assertThat(client.getAccounts(createRequest("0"), new BankRequestHeader()).getAccount().get(0), is("fallback"));
+	}
+
+	@Test
+	public void testRouteByXPath() throws Exception {
+		SoapRoutes<BankCustomerServicePortType> routes = SoapRoutes.newInstance(BankCustomerServicePortType.class);
+		routes.route("getAccounts", "/*/bank:customerNumber", Collections.singletonMap("bank", "http://example.bank.skjolber.github.com/v1"))
+			.respond("1", createResponse("account1"))
+			.respond("2", createResponse("account2"));
+
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS, properties(SoapRoutes.PROPERTY, routes));
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenReturn(createResponse("fallback"));
+
+		BankCustomerServicePortType client = createClient(ADDRESS);
+		assertThat(client.getAccounts(createRequest("2"), new BankRequestHeader()).getAccount().get(0), is("account2"));
+		assertThat(client.getAccounts(createRequest("1"), new BankRequestHeader()).getAccount().get(0), is("account1"));
+		assertThat(client.getAccounts(createRequest("3"), new BankRequestHeader()).getAccount().get(0), is("fallback"));
+
+		Assert.assertSame(routes, soap.routes(ADDRESS));
+	}
+
+	@Test
+	public void testNotEnabled() {
+		soap.mock(BankCustomerServicePortType.class, ADDRESS);
+
+		Assert.assertNull(soap.routes(ADDRESS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownOperation() {
+		SoapRoutes.newInstance(BankCustomerServicePortType.class).route("getCustomers", GetAccountsRequest.class, GetAccountsRequest::getCustomerNumber);
+	}
+
+	@Test
+	public void testUndeclaredFault() {
+		SoapRoutes.Route<GetAccountsRequest> route = SoapRoutes.newInstance(BankCustomerServicePortType.class).route("getAccounts", GetAccountsRequest.class, GetAccountsRequest::getCustomerNumber);
+
+		// declared and unchecked exceptions are accepted
+		route.fault("1", new BankException_Exception("message", new BankException()));
+		route.fault("2", new IllegalStateException());
+		try {
+			route.fault("3", new IOException());
+			Assert.fail();
+		} catch(IllegalArgumentException e) {
+			// expected
+		}
+		assertThat(route.size(), is(2));
+	}
+}
@@ -0,0 +1,99 @@
+package com.github.skjolber.mockito.soap;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.helpers.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+
+/**
+ * Test that a single bus is shared between endpoints and tests.
+ */
+public class SoapServerExtensionSharedBusTest {
+
+	@RegisterExtension
+	public static SoapServiceExtension soap = new SoapServiceExtension(true);
+
+	private static Bus bus;
+
+	@Test
+	public void testSharedBus1() throws Exception {
+		assertSharedBus();
+	}
+
+	@Test
+	public void testSharedBus2() throws Exception {
+		assertSharedBus();
+	}
+
+	private void assertSharedBus() throws Exception {
+		if(bus == null) {
+			bus = soap.getBus();
+		} else {
+			Assertions.assertSame(bus, soap.getBus());
+		}
+		Assertions.assertEquals(Bus.BusState.RUNNING, bus.getState());
+
+		String address1 = "http://localhost:12364/service1";
+		String address2 = "http://localhost:12364/service2";
+
+		soap.mock(BankCustomerServicePortType.class, address1);
+		soap.mock(BankCustomerServicePortType.class, address2);
+
+		try (InputStream in = new URL(address1 + "?wsdl").openStream()) {
+			assertThat(IOUtils.toString(in), containsString("wsdl:definitions"));
+		}
+		try (InputStream in = new URL(address2 + "?wsdl").openStream()) {
+			assertThat(IOUtils.toString(in), containsString("wsdl:definitions"));
+		}
+	}
+
+	@Test
+	public void testResetKeepsBus() throws Exception {
+		String address = "http://localhost:12364/service";
+
+		soap.mock(BankCustomerServicePortType.class, address);
+		Bus before = soap.getBus();
+
+		soap.reset();
+
+		Assertions.assertSame(before, soap.getBus());
+		Assertions.assertEquals(Bus.BusState.RUNNING, soap.getBus().getState());
+
+		Assertions.assertThrows(FileNotFoundException.class, () -> {
+			try (InputStream in = new URL(address + "?wsdl").openStream()) {
+				// not published
+			}
+		});
+
+		// same address can be published again
+		soap.mock(BankCustomerServicePortType.class, address);
+
+		try (InputStream in = new URL(address + "?wsdl").openStream()) {
+			assertThat(IOUtils.toString(in), containsString("wsdl:definitions"));
+		}
+	}
+
+	@Test
+	public void testAfterAll() throws Exception {
+		SoapServiceExtension extension = new SoapServiceExtension(true);
+		extension.beforeAll(null);
+		extension.mock(BankCustomerServicePortType.class, "http://localhost:12365/service");
+		Bus extensionBus = extension.getBus();
+
+		extension.afterAll(null);
+
+		Assertions.assertEquals(Bus.BusState.SHUTDOWN, extensionBus.getState());
+		Assertions.assertTrue(PortManager.isPortAvailable(12365));
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.github.skjolber.mockito.soap;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.helpers.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+
+/**
+ * Test that a single bus is shared between endpoints and tests.
+ */
+public class SoapServerRuleSharedBusTest {
+
+	@ClassRule
+	public static SoapServerRule soap = SoapServerRule.newInstance(true);
+
+	private static Bus bus;
+
+	@After
+	public void reset() {
+		soap.reset();
+	}
+
+	@Test
+	public void testSharedBus1() throws Exception {
+		assertSharedBus();
+	}
+
+	@Test
+	public void testSharedBus2() throws Exception {
+		assertSharedBus();
+	}
+
+	private void assertSharedBus() throws Exception {
+		if(bus == null) {
+			bus = soap.getBus();
+		} else {
+			Assert.assertSame(bus, soap.getBus());
+		}
+		Assert.assertEquals(Bus.BusState.RUNNING, bus.getState());
+
+		String address1 = "http://localhost:12345/service1";
+		String address2 = "http://localhost:12345/service2";
+
+		soap.mock(BankCustomerServicePortType.class, address1);
+		soap.mock(BankCustomerServicePortType.class, address2);
+
+		try (InputStream in = new URL(address1 + "?wsdl").openStream()) {
+			assertThat(IOUtils.toString(in), containsString("wsdl:definitions"));
+		}
+		try (InputStream in = new URL(address2 + "?wsdl").openStream()) {
+			assertThat(IOUtils.toString(in), containsString("wsdl:definitions"));
+		}
+	}
+
+	@Test
+	public void testResetKeepsBus() throws Exception {
+		String address = "http://localhost:12345/service";
+
+		soap.mock(BankCustomerServicePortType.class, address);
+
+		soap.reset();
+
+		Assert.assertEquals(Bus.BusState.RUNNING, soap.getBus().getState());
+
+		try (InputStream in = new URL(address + "?wsdl").openStream()) {
+			Assert.fail();
+		} catch(FileNotFoundException e) {
+			// pass
+		}
+
+		// same address can be published again
+		soap.mock(BankCustomerServicePortType.class, address);
+
+		try (InputStream in = new URL(address + "?wsdl").openStream()) {
+			assertThat(IOUtils.toString(in), containsString("wsdl:definitions"));
+		}
+	}
+
+	@Test
+	public void testDestroy() throws Exception {
+		SoapServerRule rule = SoapServerRule.newInstance(true);
+		rule.mock(BankCustomerServicePortType.class, "http://localhost:12346/service");
+		Bus ruleBus = rule.getBus();
+
+		rule.destroy();
+
+		Assert.assertEquals(Bus.BusState.SHUTDOWN, ruleBus.getState());
+		Assert.assertTrue(PortManager.isPortAvailable(12346));
+	}
+
+}
@@ -1,15 +1,24 @@
 package com.github.skjolber.mockito.soap;
 
 import static com.github.skjolber.mockito.soap.SoapServiceFault.createFault;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.namespace.QName;
 
+import org.apache.cxf.binding.soap.SoapFault;
 import org.apache.cxf.helpers.IOUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.w3c.dom.Element;
 
 import com.github.skjolber.bank.example.v1.BankException;
 
@@ -32,6 +41,29 @@ public class SoapServiceFaultTest {
 		createFault(bankException);
 	}
 
+	@Test
+	public void createSoapFaultJAXBReused() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<SoapFault>> futures = new ArrayList<>();
+			for(int i = 0; i < 100; i++) {
+				String code = Integer.toString(i);
+				futures.add(executor.submit(() -> {
+					BankException bankException = new BankException();
+					bankException.setCode(code);
+					bankException.setMessage("b");
+					return createFault(bankException);
+				}));
+			}
+			for(int i = 0; i < futures.size(); i++) {
+				Element detail = (Element)futures.get(i).get().getDetail().getFirstChild();
+				assertThat(detail.getElementsByTagNameNS("*", "code").item(0).getTextContent(), is(Integer.toString(i)));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Test
 	public void createSoapFaultJAXBNoXmlRoot() {
 		NoXmlRootElement noXmlRoot = new NoXmlRootElement();
@@ -0,0 +1,65 @@
+package com.github.skjolber.mockito.soap;
+
+import static com.github.skjolber.mockito.soap.BankCustomerClients.createClient;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jetty.util.VirtualThreads;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.skjolber.bank.example.v1.BankCustomerServicePortType;
+import com.github.skjolber.bank.example.v1.BankRequestHeader;
+import com.github.skjolber.bank.example.v1.GetAccountsRequest;
+import com.github.skjolber.bank.example.v1.GetAccountsResponse;
+
+public class VirtualThreadsTest {
+
+	private static final String ADDRESS = "http://localhost:12352/service";
+	private static final String RUNNING_ADDRESS = "http://localhost:12363/service";
+
+	@Rule
+	public SoapServerRule soap = SoapServerRule.newInstance().withVirtualThreads();
+
+	@Test
+	public void testAnswerThread() throws Exception {
+		AtomicReference<Thread> thread = new AtomicReference<>();
+		AtomicReference<Boolean> virtual = new AtomicReference<>();
+
+		BankCustomerServicePortType serviceMock = soap.mock(BankCustomerServicePortType.class, ADDRESS);
+		when(serviceMock.getAccounts(any(GetAccountsRequest.class), any(BankRequestHeader.class))).thenAnswer(invocation -> {
+			thread.set(Thread.currentThread());
+			virtual.set(VirtualThreads.isVirtualThread());
+			return new GetAccountsResponse();
+		});
+
+		createClient(ADDRESS).getAccounts(new GetAccountsRequest(), new BankRequestHeader());
+
+		if(soap.isVirtualThreads()) {
+			Assert.assertTrue(virtual.get());
+		} else {
+			// fall back to the rule's own platform threads
+			Assert.assertFalse(virtual.get());
+			Assert.assertTrue(thread.get().getName(), thread.get().getName().startsWith("soap-server-rule"));
+		}
+	}
+
+	@Test
+	public void testEngineAlreadyRunning() throws Exception {
+		SoapServerRule other = SoapServerRule.newInstance();
+		try {
+			other.mock(BankCustomerServicePortType.class, RUNNING_ADDRESS + "1");
+			try {
+				soap.mock(BankCustomerServicePortType.class, RUNNING_ADDRESS + "2");
+				Assert.fail();
+			} catch(IllegalStateException e) {
+				// expected
+			}
+		} finally {
+			other.destroy();
+		}
+	}
+}